@@ -0,0 +1,34 @@
+package org.antlr.symtab.bench;
+
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/** Run benchmarks like JMH's own main but always with the GC profiler so
+ *  allocation rates (gc.alloc.rate.norm is bytes per op) are reported.
+ *  Takes the usual JMH command line, e.g.
+ *
+ *  <pre>
+ *  java -jar target/benchmarks.jar ClassMemberBenchmark -p depth=50
+ *  </pre>
+ */
+public class BenchMain {
+	public static void main(String[] args) throws Exception {
+		CommandLineOptions cmd = new CommandLineOptions(args);
+		if ( cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() ||
+			 cmd.shouldListProfilers() || cmd.shouldListResultFormats() ||
+			 !cmd.getProfilers().isEmpty() )
+		{
+			Main.main(args); // nothing to add or profilers given explicitly
+			return;
+		}
+		Options opts = new OptionsBuilder()
+			.parent(cmd)
+			.addProfiler(GCProfiler.class)
+			.build();
+		new Runner(opts).run();
+	}
+}
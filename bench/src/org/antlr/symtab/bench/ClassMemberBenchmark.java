@@ -0,0 +1,124 @@
+package org.antlr.symtab.bench;
+
+import org.antlr.symtab.ClassSymbol;
+import org.antlr.symtab.Symbol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** ClassSymbol member lookup, member lists and subclass tests on the most
+ *  derived class of an inheritance chain. depth is the chain length, width
+ *  the number of fields and of methods per class. With sealed, the chain
+ *  is sealed first so lists come from the precomputed tables.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+public class ClassMemberBenchmark {
+	@Param({"1", "10", "50"})
+	public int depth;
+
+	@Param({"4", "64"})
+	public int width;
+
+	@Param({"false", "true"})
+	public boolean sealed;
+
+	protected ClassSymbol leaf;
+	protected ClassSymbol root;
+	protected String[] leafNames;
+	protected String[] rootNames;
+	protected String[] missingNames;
+
+	@Setup
+	public void setup() {
+		leaf = Workloads.classChain(depth, width, width);
+		root = leaf;
+		while ( root.getSuperClassScope()!=null ) {
+			root = root.getSuperClassScope();
+		}
+		if ( sealed ) {
+			leaf.seal();
+		}
+		leafNames = new String[width];
+		rootNames = new String[width];
+		missingNames = new String[width];
+		for (int i = 0; i<width; i++) {
+			leafNames[i] = new String("f"+(depth-1)+"_"+i);
+			rootNames[i] = new String("f0_"+i);
+			missingNames[i] = "missing"+i;
+		}
+	}
+
+	@Benchmark
+	public void resolveMemberInLeaf(Blackhole bh) {
+		for (String name : leafNames) {
+			bh.consume(leaf.resolveMember(name));
+		}
+	}
+
+	@Benchmark
+	public void resolveMemberInRoot(Blackhole bh) {
+		for (String name : rootNames) {
+			bh.consume(leaf.resolveMember(name));
+		}
+	}
+
+	@Benchmark
+	public void resolveMemberMissing(Blackhole bh) {
+		for (String name : missingNames) {
+			bh.consume(leaf.resolveMember(name));
+		}
+	}
+
+	@Benchmark
+	public boolean isSubclassOfRoot() {
+		return leaf.isSubclassOf(root);
+	}
+
+	/** What isSubclassOf() replaces */
+	@Benchmark
+	public boolean walkToRoot() {
+		for (ClassSymbol c = leaf; c!=null; c = c.getSuperClassScope()) {
+			if ( c==root ) return true;
+		}
+		return false;
+	}
+
+	/** walkToRoot() without the cached superclasses: resolve each
+	 *  superclass name, as getSuperClassScope() did before caching.
+	 */
+	@Benchmark
+	public boolean walkToRootUncached() {
+		for (ClassSymbol c = leaf; c!=null; ) {
+			if ( c==root ) return true;
+			String sup = c.getSuperClassName();
+			Symbol s = sup!=null ? c.getEnclosingScope().resolve(sup) : null;
+			c = s instanceof ClassSymbol ? (ClassSymbol)s : null;
+		}
+		return false;
+	}
+
+	@Benchmark
+	public Object getMethods() {
+		return leaf.getMethods();
+	}
+
+	@Benchmark
+	public Object getFields() {
+		return leaf.getFields();
+	}
+}
@@ -0,0 +1,99 @@
+package org.antlr.symtab.bench;
+
+import org.antlr.symtab.IntMap;
+import org.antlr.symtab.PrimitiveType;
+import org.antlr.symtab.SymbolTable;
+import org.antlr.symtab.Type;
+import org.antlr.symtab.TypeIndexMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Decoding type indexes back to types the way an interpreter does per
+ *  instruction: a HashMap with boxed keys versus an IntMap and a
+ *  TypeIndexMap over a table. Indexes are our own, sparse and past the
+ *  Integer cache, so the map gets no registry to renumber them. Times are
+ *  per lookup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexLookupBenchmark {
+	public static final int N = 1000;
+	public static final int TYPES = 500;
+
+	@State(Scope.Thread)
+	public static class Types {
+		public int[] indexes;
+		public Map<Integer, Type> boxed;
+		public IntMap<Type> unboxed;
+		public TypeIndexMap table;
+
+		@Setup
+		public void setup() {
+			SymbolTable symtab = new SymbolTable();
+			boxed = new HashMap<>();
+			unboxed = new IntMap<>();
+			int[] all = new int[TYPES];
+			for (int i = 0; i<TYPES; i++) {
+				PrimitiveType t = new PrimitiveType("t"+i);
+				t.setTypeIndex(1000+i*7);
+				symtab.definePredefinedSymbol(t);
+				boxed.put(t.getTypeIndex(), t);
+				unboxed.put(t.getTypeIndex(), t);
+				all[i] = t.getTypeIndex();
+			}
+			table = new TypeIndexMap(symtab.TYPES, symtab.PREDEFINED, symtab.GLOBALS);
+			Random r = new Random(Workloads.SEED);
+			indexes = new int[N];
+			for (int i = 0; i<N; i++) {
+				indexes[i] = all[r.nextInt(TYPES)];
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int boxedHashMap(Types s) {
+		int sum = 0;
+		for (int i : s.indexes) {
+			sum += s.boxed.get(i).getTypeIndex();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int intMap(Types s) {
+		int sum = 0;
+		for (int i : s.indexes) {
+			sum += s.unboxed.get(i).getTypeIndex();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int typeIndexMap(Types s) {
+		int sum = 0;
+		for (int i : s.indexes) {
+			sum += s.table.get(i).getTypeIndex();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,97 @@
+package org.antlr.symtab.bench;
+
+import org.antlr.symtab.LocalScope;
+import org.antlr.symtab.Scope;
+import org.antlr.symtab.Symbol;
+import org.antlr.symtab.VariableSymbol;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/** BaseScope.define() and resolve() with the name found in the innermost
+ *  scope, the outermost scope or nowhere, across nesting depths. Resolve
+ *  benchmarks look up every name of a level per invocation, one at a time
+ *  or with resolveAll().
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+public class ScopeBenchmark {
+	@Param({"1", "4", "16", "64"})
+	public int depth;
+
+	@Param({"4", "32"})
+	public int symbolsPerScope;
+
+	protected Scope innermost;
+	protected String[] innerNames;
+	protected String[] outerNames;
+	protected String[] missingNames;
+	protected Symbol[] results;
+
+	@Setup
+	public void setup() {
+		innermost = Workloads.nestedScopes(depth, symbolsPerScope);
+		innerNames = new String[symbolsPerScope];
+		outerNames = new String[symbolsPerScope];
+		missingNames = new String[symbolsPerScope];
+		results = new Symbol[symbolsPerScope];
+		for (int i = 0; i<symbolsPerScope; i++) {
+			// copy so lookups can't take an identity shortcut a parser wouldn't get
+			innerNames[i] = new String(Workloads.varName(depth-1, i));
+			outerNames[i] = new String(Workloads.varName(0, i));
+			missingNames[i] = "missing"+i;
+		}
+	}
+
+	@Benchmark
+	public void resolveInnermost(Blackhole bh) {
+		for (String name : innerNames) {
+			bh.consume(innermost.resolve(name));
+		}
+	}
+
+	@Benchmark
+	public void resolveOutermost(Blackhole bh) {
+		for (String name : outerNames) {
+			bh.consume(innermost.resolve(name));
+		}
+	}
+
+	/** All outer names in one walk; compare with resolveOutermost */
+	@Benchmark
+	public Symbol[] resolveAllOutermost() {
+		innermost.resolveAll(outerNames, results);
+		return results;
+	}
+
+	@Benchmark
+	public void resolveMissing(Blackhole bh) {
+		for (String name : missingNames) {
+			bh.consume(innermost.resolve(name));
+		}
+	}
+
+	/** Open a new local scope under the innermost and fill it */
+	@Benchmark
+	public Scope define() {
+		LocalScope local = new LocalScope(innermost);
+		for (String name : innerNames) {
+			local.define(new VariableSymbol(name));
+		}
+		return local;
+	}
+}
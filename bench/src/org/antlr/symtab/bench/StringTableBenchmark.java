@@ -0,0 +1,129 @@
+package org.antlr.symtab.bench;
+
+import org.antlr.symtab.ConcurrentStringTable;
+import org.antlr.symtab.StringTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** StringTable.add() of new and of already present strings, plus the
+ *  concurrent table shared by several threads against a StringTable
+ *  shared under a lock. Times are per add.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringTableBenchmark {
+	public static final int N = 10_000;
+
+	@State(Scope.Thread)
+	public static class Strings {
+		public String[] strings;
+		public StringTable filled;
+
+		@Setup
+		public void setup() {
+			strings = shuffledStrings(N);
+			filled = new StringTable();
+			for (String s : strings) {
+				filled.add(s);
+			}
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class Shared {
+		@Param({"false", "true"})
+		public boolean prefilled;
+
+		public String[] strings;
+		public ConcurrentStringTable table;
+		public StringTable locked; // baseline, used under synchronized
+
+		@Setup
+		public void setup() {
+			strings = shuffledStrings(N);
+			table = new ConcurrentStringTable();
+			locked = new StringTable();
+			if ( prefilled ) {
+				for (String s : strings) {
+					table.add(s);
+					locked.add(s);
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public StringTable addNew(Strings s) {
+		StringTable t = new StringTable();
+		for (String x : s.strings) {
+			t.add(x);
+		}
+		return t;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int addExisting(Strings s) {
+		int sum = 0;
+		for (String x : s.strings) {
+			sum += s.filled.add(x);
+		}
+		return sum;
+	}
+
+	/** Without prefilled, the first pass adds and later ones mostly find */
+	@Benchmark
+	@Threads(4)
+	@OperationsPerInvocation(N)
+	public int concurrentAdd(Shared s) {
+		int sum = 0;
+		for (String x : s.strings) {
+			sum += s.table.add(x);
+		}
+		return sum;
+	}
+
+	/** Baseline for concurrentAdd: a plain StringTable behind one lock */
+	@Benchmark
+	@Threads(4)
+	@OperationsPerInvocation(N)
+	public int synchronizedAdd(Shared s) {
+		int sum = 0;
+		for (String x : s.strings) {
+			synchronized ( s.locked ) {
+				sum += s.locked.add(x);
+			}
+		}
+		return sum;
+	}
+
+	static String[] shuffledStrings(int n) {
+		List<String> list = new ArrayList<>(n);
+		for (int i = 0; i<n; i++) {
+			list.add("ident"+i);
+		}
+		Collections.shuffle(list, new Random(Workloads.SEED));
+		return list.toArray(new String[0]);
+	}
+}
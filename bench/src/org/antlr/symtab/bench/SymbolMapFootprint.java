@@ -0,0 +1,68 @@
+package org.antlr.symtab.bench;
+
+import org.antlr.symtab.Symbol;
+import org.antlr.symtab.SymbolMap;
+import org.antlr.symtab.VariableSymbol;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/** Heap retained per scope by the symbol store that BaseScope used to
+ *  allocate up front, a LinkedHashMap, versus SymbolMap, for scopes of a
+ *  few sizes. JMH reports bytes allocated, not retained, so this fills
+ *  many maps, keeps them reachable and measures the heap after GC. Keys
+ *  and symbols are shared so only the maps themselves count. Run with
+ *
+ *  <pre>
+ *  java -cp target/benchmarks.jar org.antlr.symtab.bench.SymbolMapFootprint
+ *  </pre>
+ */
+public class SymbolMapFootprint {
+	public static final int MAPS = 100_000;
+	public static final int[] SIZES = {0, 1, 2, 4, 8, 16, 64};
+
+	public static void main(String[] args) {
+		int max = SIZES[SIZES.length-1];
+		String[] names = new String[max];
+		Symbol[] syms = new Symbol[max];
+		for (int i = 0; i<max; i++) {
+			names[i] = Workloads.varName(0, i);
+			syms[i] = new VariableSymbol(names[i]);
+		}
+		System.out.printf("%8s %16s %10s%n", "symbols", "LinkedHashMap", "SymbolMap");
+		for (int n : SIZES) {
+			long linked = bytesPerMap(LinkedHashMap::new, names, syms, n);
+			long compact = bytesPerMap(SymbolMap::new, names, syms, n);
+			System.out.printf("%8d %16d %10d%n", n, linked, compact);
+		}
+	}
+
+	/** Average heap retained by one map from newMap holding n symbols */
+	public static long bytesPerMap(Supplier<Map<String, Symbol>> newMap,
+								   String[] names, Symbol[] syms, int n)
+	{
+		Object[] maps = new Object[MAPS];
+		long before = usedHeap();
+		for (int i = 0; i<MAPS; i++) {
+			Map<String, Symbol> m = newMap.get();
+			for (int j = 0; j<n; j++) {
+				m.put(names[j], syms[j]);
+			}
+			maps[i] = m;
+		}
+		long after = usedHeap();
+		if ( maps[MAPS-1]==null ) throw new IllegalStateException(); // keep maps reachable
+		return Math.round((after-before)/(double)MAPS);
+	}
+
+	protected static long usedHeap() {
+		MemoryMXBean mem = ManagementFactory.getMemoryMXBean();
+		for (int i = 0; i<3; i++) {
+			System.gc();
+		}
+		return mem.getHeapMemoryUsage().getUsed();
+	}
+}
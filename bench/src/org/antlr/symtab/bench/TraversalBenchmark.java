@@ -0,0 +1,108 @@
+package org.antlr.symtab.bench;
+
+import org.antlr.symtab.BaseSymbol;
+import org.antlr.symtab.GlobalScope;
+import org.antlr.symtab.Scope;
+import org.antlr.symtab.ScopeTraversal;
+import org.antlr.symtab.Symbol;
+import org.antlr.symtab.TypedSymbol;
+import org.antlr.symtab.Utils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Whole-program operations on a generated program: collecting every
+ *  nested scope or symbol, sequentially and in parallel, fully qualified
+ *  names of locals and building the program itself. 100000 classes holds a million locals.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(org.openjdk.jmh.annotations.Scope.Benchmark)
+public class TraversalBenchmark {
+	public static final int METHODS_PER_CLASS = 2;
+	public static final int LOCALS_PER_METHOD = 5;
+	public static final int BLOCK_DEPTH = 3;
+	public static final int SAMPLE = 1024;
+
+	@Param({"1000", "100000"})
+	public int classes;
+
+	protected GlobalScope program;
+	protected Symbol[] locals; // sample of innermost locals
+
+	@Setup
+	public void setup() {
+		program = buildProgram();
+		List<Scope> scopes = new ArrayList<>();
+		Utils.getAllNestedScopes(program, scopes);
+		List<Symbol> innermost = new ArrayList<>();
+		for (Scope s : scopes) {
+			if ( s.getNestedScopes().isEmpty() ) {
+				innermost.addAll(s.getSymbols());
+			}
+		}
+		Random random = new Random(Workloads.SEED);
+		locals = new Symbol[SAMPLE];
+		for (int i = 0; i<SAMPLE; i++) {
+			locals[i] = innermost.get(random.nextInt(innermost.size()));
+		}
+	}
+
+	protected GlobalScope buildProgram() {
+		return Workloads.program(classes, METHODS_PER_CLASS, LOCALS_PER_METHOD, BLOCK_DEPTH, Workloads.SEED);
+	}
+
+	@Benchmark
+	public List<Scope> getAllNestedScopes() {
+		List<Scope> scopes = new ArrayList<>();
+		Utils.getAllNestedScopes(program, scopes);
+		return scopes;
+	}
+
+	@Benchmark
+	public List<? extends Symbol> getAllSymbols() {
+		return program.getAllSymbols();
+	}
+
+	/** A pass over every symbol, here counting untyped ones */
+	@Benchmark
+	public long symbolStream() {
+		return ScopeTraversal.symbols(program, false).filter(s -> s instanceof TypedSymbol && ((TypedSymbol)s).getType()==null).count();
+	}
+
+	@Benchmark
+	public long parallelSymbolStream() {
+		return ScopeTraversal.symbols(program, true).filter(s -> s instanceof TypedSymbol && ((TypedSymbol)s).getType()==null).count();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SAMPLE)
+	public void getFullyQualifiedName(Blackhole bh) {
+		for (Symbol s : locals) {
+			bh.consume(((BaseSymbol)s).getFullyQualifiedName("."));
+		}
+	}
+
+	/** Define throughput at scale, allocation included */
+	@Benchmark
+	public GlobalScope build() {
+		return buildProgram();
+	}
+}
@@ -0,0 +1,81 @@
+package org.antlr.symtab.bench;
+
+import org.antlr.symtab.ArrayType;
+import org.antlr.symtab.PointerType;
+import org.antlr.symtab.PrimitiveType;
+import org.antlr.symtab.Type;
+import org.antlr.symtab.TypeFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/** Building and comparing types like int*[] the way a checker does per
+ *  expression: fresh instances compared by toString() versus canonical
+ *  ones from a TypeFactory compared with ==. Times are per type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeBenchmark {
+	public static final int N = 1000;
+
+	@State(Scope.Thread)
+	public static class Types {
+		public PrimitiveType[] prims;
+		public int[] elems;
+		public TypeFactory factory;
+
+		@Setup
+		public void setup() {
+			prims = new PrimitiveType[8];
+			for (int i = 0; i<prims.length; i++) {
+				prims[i] = new PrimitiveType("t"+i);
+			}
+			Random r = new Random(Workloads.SEED);
+			elems = new int[N];
+			for (int i = 0; i<N; i++) {
+				elems[i] = r.nextInt(prims.length);
+			}
+			factory = new TypeFactory();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int freshByString(Types s) {
+		int same = 0;
+		Type prev = null;
+		for (int e : s.elems) {
+			Type t = new ArrayType(new PointerType(s.prims[e]));
+			if ( prev!=null && t.toString().equals(prev.toString()) ) same++;
+			prev = t;
+		}
+		return same;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(N)
+	public int internedByIdentity(Types s) {
+		int same = 0;
+		Type prev = null;
+		for (int e : s.elems) {
+			Type t = s.factory.arrayOf(s.factory.pointerTo(s.prims[e]));
+			if ( t==prev ) same++;
+			prev = t;
+		}
+		return same;
+	}
+}
@@ -0,0 +1,146 @@
+package org.antlr.symtab.bench;
+
+import org.antlr.symtab.ClassSymbol;
+import org.antlr.symtab.FieldSymbol;
+import org.antlr.symtab.GlobalScope;
+import org.antlr.symtab.LocalScope;
+import org.antlr.symtab.MethodSymbol;
+import org.antlr.symtab.ParameterSymbol;
+import org.antlr.symtab.PrimitiveType;
+import org.antlr.symtab.PredefinedScope;
+import org.antlr.symtab.Scope;
+import org.antlr.symtab.Type;
+import org.antlr.symtab.VariableSymbol;
+
+import java.util.Random;
+
+/** Synthetic scope trees shaped like what a compiler front end builds.
+ *  Everything is deterministic for a given seed so runs compare.
+ */
+public class Workloads {
+	public static final long SEED = 0x5EED;
+
+	/** The predefined scope every workload hangs off of, holding int,
+	 *  float and boolean.
+	 */
+	public static PredefinedScope predefined() {
+		PredefinedScope p = new PredefinedScope();
+		p.define(new PrimitiveType("int"));
+		p.define(new PrimitiveType("float"));
+		p.define(new PrimitiveType("boolean"));
+		return p;
+	}
+
+	/** Name of the ith variable defined at nesting level */
+	public static String varName(int level, int i) {
+		return "v"+level+"_"+i;
+	}
+
+	/** A global scope with depth-1 local scopes nested inside it, each
+	 *  level defining symbolsPerScope variables named by {@link #varName}.
+	 *  Return the innermost scope.
+	 */
+	public static Scope nestedScopes(int depth, int symbolsPerScope) {
+		Scope scope = new GlobalScope(predefined());
+		for (int level = 0; level<depth; level++) {
+			if ( level>0 ) {
+				LocalScope local = new LocalScope(scope);
+				scope.nest(local);
+				scope = local;
+			}
+			Type t = (Type)scope.resolve("int");
+			for (int i = 0; i<symbolsPerScope; i++) {
+				VariableSymbol v = new VariableSymbol(varName(level, i));
+				v.setType(t);
+				scope.define(v);
+			}
+		}
+		return scope;
+	}
+
+	/** A single inheritance chain C0 &lt;- C1 &lt;- ... of depth classes,
+	 *  each defining fields f{level}_{i} and methods m{level}_{i}. Every
+	 *  class also overrides the root's first method so getMethods() has
+	 *  overrides to deal with. Return the most derived class.
+	 */
+	public static ClassSymbol classChain(int depth, int fieldsPerClass, int methodsPerClass) {
+		GlobalScope globals = new GlobalScope(predefined());
+		Type t = (Type)globals.resolve("int");
+		ClassSymbol c = null;
+		for (int level = 0; level<depth; level++) {
+			c = new ClassSymbol("C"+level);
+			globals.define(c);
+			if ( level>0 ) {
+				c.setSuperClass("C"+(level-1));
+			}
+			for (int i = 0; i<fieldsPerClass; i++) {
+				FieldSymbol f = new FieldSymbol("f"+level+"_"+i);
+				f.setType(t);
+				c.define(f);
+			}
+			for (int i = 0; i<methodsPerClass; i++) {
+				MethodSymbol m = new MethodSymbol(level>0 && i==0 ? "m0_0" : "m"+level+"_"+i);
+				m.setType(t);
+				c.define(m);
+			}
+		}
+		return c;
+	}
+
+	/** A whole program: numClasses classes, each with methodsPerClass
+	 *  methods taking one parameter. Each method body is a chain of
+	 *  blockDepth nested local scopes sharing localsPerMethod locals. About
+	 *  half the classes extend a random earlier class. 100_000 classes with
+	 *  2 methods and 5 locals each gives a million locals.
+	 */
+	public static GlobalScope program(int numClasses, int methodsPerClass,
+	                                  int localsPerMethod, int blockDepth, long seed)
+	{
+		Random random = new Random(seed);
+		GlobalScope globals = new GlobalScope(predefined());
+		Type[] types = {
+			(Type)globals.resolve("int"),
+			(Type)globals.resolve("float"),
+			(Type)globals.resolve("boolean")
+		};
+		for (int ci = 0; ci<numClasses; ci++) {
+			ClassSymbol c = new ClassSymbol("C"+ci);
+			globals.define(c);
+			if ( ci>0 && random.nextBoolean() ) {
+				c.setSuperClass("C"+random.nextInt(ci));
+			}
+			FieldSymbol f = new FieldSymbol("count");
+			f.setType(types[0]);
+			c.define(f);
+			for (int mi = 0; mi<methodsPerClass; mi++) {
+				MethodSymbol m = new MethodSymbol("m"+mi);
+				m.setType(types[random.nextInt(types.length)]);
+				c.define(m);
+				ParameterSymbol p = new ParameterSymbol("arg");
+				p.setType(types[random.nextInt(types.length)]);
+				m.define(p);
+				Scope block = m;
+				for (int li = 0; li<localsPerMethod; li++) {
+					if ( li*blockDepth/Math.max(localsPerMethod, 1)>=depth(block, m) ) {
+						LocalScope nested = new LocalScope(block);
+						block.nest(nested);
+						block = nested;
+					}
+					VariableSymbol v = new VariableSymbol("x"+li);
+					v.setType(types[random.nextInt(types.length)]);
+					block.define(v);
+				}
+			}
+		}
+		return globals;
+	}
+
+	/** Number of local scopes between block and method */
+	protected static int depth(Scope block, MethodSymbol method) {
+		int d = 0;
+		for (Scope s = block; s!=method; s = s.getEnclosingScope()) {
+			d++;
+		}
+		return d;
+	}
+}
@@ -0,0 +1,119 @@
+package org.antlr.symtab;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/** A thread-safe array that only grows. Storage is a list of chunks whose
+ *  sizes double (32, 64, 128, ...) so growing never copies or locks and
+ *  {@link #get(int)} is two volatile array reads. Elements can't be null.
+ */
+public class AppendOnlyArray<T> {
+	protected static final int FIRST_CHUNK_BITS = 5;
+	protected static final int FIRST_CHUNK_SIZE = 1<<FIRST_CHUNK_BITS;
+
+	/** How long get() waits for an element claimed but not yet stored */
+	protected static final long MAX_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+	/** chunks.get(k) holds FIRST_CHUNK_SIZE<<k elements; created on demand */
+	protected final AtomicReferenceArray<AtomicReferenceArray<T>> chunks =
+		new AtomicReferenceArray<>(32-FIRST_CHUNK_BITS);
+
+	protected final AtomicInteger size = new AtomicInteger(); // number of claimed indexes
+
+	/** Append x and return its index. Concurrent adds get distinct, dense indexes. */
+	public int add(T x) {
+		if ( x==null ) throw new NullPointerException(); // before claiming, or get() waits forever
+		int i = claim();
+		set(i, x);
+		return i;
+	}
+
+	/** Reserve the next index without storing anything yet; callers must
+	 *  follow up with {@link #set(int, Object)} as readers wait for it.
+	 */
+	public int claim() {
+		return size.getAndIncrement();
+	}
+
+	/** Store x at an index already claimed, replacing any element there */
+	public void set(int i, T x) {
+		if ( x==null ) throw new NullPointerException();
+		if ( i<0 || i>=size.get() ) {
+			throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size.get());
+		}
+		chunk(i, true).set(offset(i), x);
+	}
+
+	/** Get the ith element or null if out of range. An index claimed by an
+	 *  add() in another thread that has not yet stored its element is waited
+	 *  for briefly so every i less than size() yields an element. If the
+	 *  element still isn't there after {@link #MAX_WAIT_NANOS}, its writer
+	 *  presumably died between claim and store, and get() throws
+	 *  IllegalStateException rather than spin forever.
+	 */
+	public T get(int i) {
+		if ( i<0 || i>=size.get() ) return null;
+		long deadline = 0;
+		while ( true ) {
+			AtomicReferenceArray<T> chunk = chunk(i, false);
+			if ( chunk!=null ) {
+				T x = chunk.get(offset(i));
+				if ( x!=null ) return x;
+			}
+			long now = System.nanoTime();
+			if ( deadline==0 ) {
+				deadline = now+MAX_WAIT_NANOS;
+			}
+			else if ( now-deadline>0 ) {
+				throw new IllegalStateException("element "+i+" was claimed but never stored");
+			}
+			Thread.yield(); // writer is between claiming i and storing it
+		}
+	}
+
+	/** Number of elements added, including any still being stored */
+	public int size() { return size.get(); }
+
+	/** Return a read-only List view that follows this array as it grows */
+	public List<T> asList() {
+		return new ListView();
+	}
+
+	protected class ListView extends AbstractList<T> implements RandomAccess {
+		@Override
+		public T get(int i) {
+			T x = AppendOnlyArray.this.get(i);
+			if ( x==null ) {
+				throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size());
+			}
+			return x;
+		}
+
+		@Override
+		public int size() { return AppendOnlyArray.this.size(); }
+	}
+
+	protected AtomicReferenceArray<T> chunk(int i, boolean create) {
+		int k = chunkNumber(i);
+		AtomicReferenceArray<T> chunk = chunks.get(k);
+		if ( chunk==null && create ) {
+			chunks.compareAndSet(k, null, new AtomicReferenceArray<>(FIRST_CHUNK_SIZE<<k));
+			chunk = chunks.get(k);
+		}
+		return chunk;
+	}
+
+	protected static int chunkNumber(int i) {
+		int pos = i+FIRST_CHUNK_SIZE;
+		return 31-Integer.numberOfLeadingZeros(pos)-FIRST_CHUNK_BITS;
+	}
+
+	protected static int offset(int i) {
+		int pos = i+FIRST_CHUNK_SIZE;
+		return pos-Integer.highestOneBit(pos);
+	}
+}
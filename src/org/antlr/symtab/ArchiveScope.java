@@ -0,0 +1,393 @@
+package org.antlr.symtab;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.antlr.symtab.SymbolArchiveWriter.*;
+
+/** A read-only scope over a memory-mapped symbol archive written by
+ *  {@link SymbolArchiveWriter}. Nothing is loaded up front: a top-level
+ *  symbol, such as a ClassSymbol with all of its members, is built the first
+ *  time {@link #getSymbol} or {@link #resolve} hits its name in the on-disk
+ *  hash index. Methods that must see every symbol, like {@link #getSymbols()},
+ *  load the rest of the archive.
+ *
+ *  Use one as the predefined scope of a {@link SymbolTable} or chain it in
+ *  as the enclosing scope of a global scope, interning array, pointer and
+ *  function types with the table's factory so they share its index space:
+ *
+ *  <pre>
+ *  table.PREDEFINED = ArchiveScope.open(path, null, table.TYPES);
+ *  table.GLOBALS.setEnclosingScope(table.PREDEFINED);
+ *  </pre>
+ *
+ *  The type indexes stored in the archive belong to the table that wrote
+ *  it, so loaded primitive and aggregate types start unnumbered, -1.
+ *
+ *  Not thread-safe until frozen; loading happens on reads. A malformed
+ *  archive shows up as an UncheckedIOException from the read that hit it.
+ */
+public class ArchiveScope extends BaseScope {
+	protected final String name;
+	protected final ByteBuffer buf;
+	protected final int numStrings;
+	protected final int stringOffsetsPos;
+	protected final int numEntries;
+	protected final int indexPos;
+	protected final int indexSlots;
+	protected final int orderPos;
+	protected final String[] strings; // decoded on demand
+
+	protected boolean complete; // every entry loaded and symbols in archive order
+
+	/** Entries read but whose types are not yet resolved */
+	protected final Deque<EntryReader> pendingTypes = new ArrayDeque<>();
+	protected boolean resolvingTypes;
+
+	/** Where array, pointer and function types of entries are interned */
+	protected final TypeFactory typeFactory;
+
+	public static ArchiveScope open(Path file, Scope enclosingScope, TypeFactory types) throws IOException {
+		try ( FileChannel ch = FileChannel.open(file, StandardOpenOption.READ) ) {
+			MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+			return new ArchiveScope(file.getFileName().toString(), buf, enclosingScope, types);
+		}
+	}
+
+	/** Read the archive in buf, interning entry types with types, usually
+	 *  the TYPES of the table this archive is part of.
+	 */
+	public ArchiveScope(String name, ByteBuffer buf, Scope enclosingScope, TypeFactory types)
+		throws IOException
+	{
+		super(enclosingScope);
+		if ( types==null ) {
+			throw new IllegalArgumentException("no type factory for archive "+name);
+		}
+		this.name = name;
+		this.buf = buf;
+		this.typeFactory = types;
+		if ( buf.capacity()<HEADER_SIZE || buf.getInt(0)!=ARCHIVE_MAGIC ) {
+			throw new IOException(name+" is not a symbol archive");
+		}
+		int version = buf.getInt(4);
+		if ( version!=ARCHIVE_VERSION ) {
+			throw new IOException("can't read symbol archive version "+version+"; expecting "+ARCHIVE_VERSION);
+		}
+		numStrings = buf.getInt(8);
+		stringOffsetsPos = buf.getInt(12);
+		numEntries = buf.getInt(16);
+		indexPos = buf.getInt(20);
+		indexSlots = buf.getInt(24);
+		orderPos = buf.getInt(28);
+		if ( !fits(stringOffsetsPos, numStrings, 4) || !fits(orderPos, numEntries, 8) ||
+			 !fits(indexPos, indexSlots, INDEX_SLOT_SIZE) || Integer.bitCount(indexSlots)!=1 )
+		{
+			throw new IOException(name+" has a corrupt header");
+		}
+		strings = new String[numStrings];
+	}
+
+	/** Do n items of size bytes starting at pos lie within the buffer? */
+	protected boolean fits(int pos, int n, int size) {
+		return pos>=0 && n>=0 && pos+(long)n*size<=buf.capacity();
+	}
+
+	@Override
+	public String getName() { return name; }
+
+	@Override
+	public Symbol getSymbol(String name) {
+		Symbol s = symbols.get(name);
+		if ( s==null && !complete ) {
+			int pos = findEntry(name);
+			if ( pos>=0 ) {
+				s = load(pos);
+			}
+		}
+		return s;
+	}
+
+	@Override
+	public Symbol getSymbol(Name name) {
+		return getSymbol(name.getText());
+	}
+
+	@Override
+	public Symbol resolve(String name) {
+		Symbol s = getSymbol(name);
+		if ( s!=null ) {
+			return s;
+		}
+		Scope parent = getEnclosingScope();
+		if ( parent != null ) return parent.resolve(name);
+		return null; // not found
+	}
+
+	@Override
+	protected Symbol resolveLocally(String name) {
+		return getSymbol(name); // as resolve() does; loads on demand
+	}
+
+	@Override
+	public Symbol resolve(Name name) {
+		return resolve(name.getText());
+	}
+
+	@Override
+	public void define(Symbol sym) {
+		throw new UnsupportedOperationException("can't define "+sym.getName()+" in archive "+name);
+	}
+
+	@Override
+	public void nest(Scope scope) {
+		throw new UnsupportedOperationException("can't nest scopes in archive "+name);
+	}
+
+	@Override
+	public Symbol undefine(String name) {
+		throw new UnsupportedOperationException("can't undefine "+name+" in archive "+this.name);
+	}
+
+	@Override
+	public Symbol replace(Symbol sym) {
+		throw new UnsupportedOperationException("can't replace "+sym.getName()+" in archive "+name);
+	}
+
+	@Override
+	public boolean unnest(Scope scope) {
+		throw new UnsupportedOperationException("can't unnest scopes in archive "+name);
+	}
+
+	@Override
+	public List<Symbol> replaceUnit(Object unit, Collection<? extends Symbol> syms) {
+		throw new UnsupportedOperationException("can't replace unit "+unit+" in archive "+name);
+	}
+
+	@Override
+	public Map<String, ? extends Symbol> getMembers() {
+		loadAll();
+		return super.getMembers();
+	}
+
+	@Override
+	public List<? extends Symbol> getSymbols() {
+		loadAll();
+		return super.getSymbols();
+	}
+
+	@Override
+	public List<? extends Symbol> getAllSymbols() {
+		loadAll();
+		return super.getAllSymbols();
+	}
+
+	@Override
+	public List<Scope> getNestedScopedSymbols() {
+		loadAll();
+		return super.getNestedScopedSymbols();
+	}
+
+	@Override
+	public List<Scope> getNestedScopes() {
+		loadAll();
+		return super.getNestedScopes();
+	}
+
+	@Override
+	public Set<String> getSymbolNames() {
+		loadAll();
+		return super.getSymbolNames();
+	}
+
+	@Override
+	public int getNumberOfSymbols() { return numEntries; }
+
+	@Override
+	public void freeze() {
+		loadAll();
+		super.freeze();
+	}
+
+	/** Number of top-level symbols loaded so far */
+	public int getNumberOfLoadedSymbols() { return symbols.size(); }
+
+	@Override
+	public String toString() { return name+" archive"; }
+
+	/** Return the position of the entry for name or -1 if none */
+	protected int findEntry(String name) {
+		int h = name.hashCode();
+		int mask = indexSlots-1;
+		int slot = SymbolMap.spread(h) & mask;
+		for (int probes = 0; probes<indexSlots; probes++, slot = (slot+1) & mask) { // a corrupt index may have no empty slot
+			int p = indexPos+slot*INDEX_SLOT_SIZE;
+			int nameIndex = buf.getInt(p+4)-1;
+			if ( nameIndex<0 ) return -1;
+			if ( buf.getInt(p)==h && getString(nameIndex).equals(name) ) {
+				return buf.getInt(p+8);
+			}
+		}
+		return -1;
+	}
+
+	/** Load every entry not yet loaded then put symbols in archive order */
+	protected void loadAll() {
+		if ( complete ) return;
+		List<Symbol> ordered = new ArrayList<>(numEntries);
+		for (int i = 0; i<numEntries; i++) {
+			int p = orderPos+i*8;
+			Symbol s = symbols.get(getString(buf.getInt(p)));
+			ordered.add(s!=null ? s : load(buf.getInt(p+4)));
+		}
+		symbols.clear();
+		scopedSymbols = null;
+		for (Symbol s : ordered) {
+			install(s);
+		}
+		complete = true;
+	}
+
+	public TypeFactory getTypeFactory() { return typeFactory; }
+
+	/** Build the entry at pos; it installs itself before its types are
+	 *  resolved so entries that refer to each other load fine. Entries
+	 *  loaded while resolving types wait in a queue rather than recursing,
+	 *  so long chains of references don't run out of stack.
+	 */
+	protected Symbol load(int pos) {
+		EntryReader reader = new EntryReader();
+		reader.namedTypeScope = this;
+		reader.types = typeFactory;
+		try {
+			reader.in = new DataInputStream(new BufferInputStream(pos));
+			Symbol s = reader.readSymbol(this);
+			pendingTypes.add(reader);
+			if ( !resolvingTypes ) {
+				resolvingTypes = true;
+				try {
+					while ( !pendingTypes.isEmpty() ) {
+						pendingTypes.remove().readTypes();
+					}
+				}
+				finally {
+					resolvingTypes = false;
+					pendingTypes.clear();
+				}
+			}
+			return s;
+		}
+		catch (IOException ioe) {
+			throw new UncheckedIOException("bad entry in archive "+name, ioe);
+		}
+	}
+
+	protected void install(Symbol sym) {
+		symbols.put(sym.getName(), sym);
+		if ( sym instanceof Scope ) {
+			if ( scopedSymbols==null ) {
+				scopedSymbols = new ArrayList<>(2);
+			}
+			scopedSymbols.add((Scope)sym);
+		}
+	}
+
+	protected String getString(int i) {
+		if ( i<0 || i>=numStrings ) {
+			throw new UncheckedIOException(new IOException("bad string index "+i+" in archive "+name));
+		}
+		String s = strings[i];
+		if ( s==null ) {
+			try {
+				DataInputStream in = new DataInputStream(new BufferInputStream(buf.getInt(stringOffsetsPos+4*i)));
+				s = in.readUTF();
+			}
+			catch (IOException ioe) {
+				throw new UncheckedIOException("bad string in archive "+name, ioe);
+			}
+			strings[i] = s;
+		}
+		return s;
+	}
+
+	/** Reads one entry; top-level symbols go straight into our symbol map
+	 *  since define() is off limits.
+	 */
+	protected class EntryReader extends SymbolTableReader {
+		@Override
+		protected Symbol define(Scope scope, Symbol sym, int order) throws IOException {
+			if ( sym instanceof PrimitiveType ) { // indexes of the writing table
+				((PrimitiveType)sym).setTypeIndex(-1);
+			}
+			else if ( sym instanceof DataAggregateSymbol ) {
+				((DataAggregateSymbol)sym).setTypeIndex(-1);
+			}
+			if ( scope!=ArchiveScope.this ) {
+				return super.define(scope, sym, order);
+			}
+			sym.setScope(ArchiveScope.this);
+			sym.setInsertionOrderNumber(order);
+			install(sym);
+			symbols.add(sym);
+			return sym;
+		}
+
+		@Override
+		protected String readString() throws IOException {
+			int i = readVarInt(in);
+			if ( i<0 || i>=numStrings ) {
+				throw new IOException("bad string index "+Integer.toUnsignedString(i));
+			}
+			return getString(i);
+		}
+
+		@Override
+		protected String readOptionalString() throws IOException {
+			int i = readVarInt(in);
+			if ( i==0 ) return null;
+			if ( i<0 || i>numStrings ) {
+				throw new IOException("bad string index "+Integer.toUnsignedString(i-1));
+			}
+			return getString(i-1);
+		}
+	}
+
+	/** Stream over the mapped buffer from a position without copying it */
+	protected class BufferInputStream extends InputStream {
+		protected final ByteBuffer b = buf.duplicate();
+
+		public BufferInputStream(int pos) throws IOException {
+			if ( pos<0 || pos>b.limit() ) {
+				throw new IOException("bad position "+pos);
+			}
+			b.position(pos);
+		}
+
+		@Override
+		public int read() {
+			return b.hasRemaining() ? b.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] a, int off, int len) {
+			if ( !b.hasRemaining() ) return -1;
+			len = Math.min(len, b.remaining());
+			b.get(a, off, len);
+			return len;
+		}
+	}
+}
@@ -3,20 +3,26 @@ package org.antlr.symtab;
 /** An element within a type type such is used in C or Java where we need to
  *  indicate the type is an array of some element type like float[] or User[].
  *  It also tracks the size as some types indicate the size of the array.
+ *
+ *  Array types are equal if their element types are the same type and
+ *  their sizes match; get a canonical instance from a {@link TypeFactory}
+ *  to compare them with ==.
  */
 public class ArrayType implements Type {
 	protected final Type elemType;
 	protected final int numElems; // some languages allow you to point at arrays of a specific size
+	protected final int hash;
+	protected int typeIndex = -1; // set by TypeFactory
 
 	public ArrayType(Type elemType) {
-		this.elemType = elemType;
-		this.numElems = -1;
+		this(elemType, -1);
 	}
 
 	public ArrayType(Type elemType, int numElems)
 	{
 		this.elemType = elemType;
 		this.numElems = numElems;
+		this.hash = TypeFactory.hashType(elemType)*31 + numElems;
 	}
 
 	@Override
@@ -25,7 +31,24 @@ public class ArrayType implements Type {
 	}
 
 	@Override
-	public int getTypeIndex() { return -1; }
+	public int getTypeIndex() { return typeIndex; }
+
+	public Type getElemType() { return elemType; }
+
+	/** Number of elements or -1 if not specified */
+	public int getNumElems() { return numElems; }
+
+	@Override
+	public boolean equals(Object obj) {
+		if ( obj==this ) return true;
+		if ( !(obj instanceof ArrayType) ) return false;
+		ArrayType other = (ArrayType)obj;
+		return hash==other.hash && numElems==other.numElems &&
+			TypeFactory.sameType(elemType, other.elemType);
+	}
+
+	@Override
+	public int hashCode() { return hash; }
 
 	@Override
 	public String toString() {
@@ -1,11 +1,18 @@
 package org.antlr.symtab;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.LinkedHashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 /** An abstract base class that houses common functionality for scopes. */
 public abstract class BaseScope implements Scope {
@@ -14,14 +21,67 @@ public abstract class BaseScope implements Scope {
 	/** All symbols defined in this scope; can include classes, functions,
 	 *  variables, or anything else that is a Symbol impl. It does NOT
 	 *  include non-Symbol-based things like LocalScope. See nestedScopes.
+	 *  A {@link SymbolMap} allocates nothing until the first define() and
+	 *  stays a small array while the scope is small.
 	 */
-	protected Map<String, Symbol> symbols = new LinkedHashMap<>();
+	protected Map<String, Symbol> symbols = new SymbolMap();
 
 	/** All directly contained scopes, typically LocalScopes within a
 	 *  LocalScope or a LocalScope within a FunctionSymbol. This does not
-	 *  include SymbolWithScope objects.
+	 *  include SymbolWithScope objects. Created on the first nest() since
+	 *  most scopes nest none.
 	 */
-	protected List<Scope> nestedScopesNotSymbols = new ArrayList<>();
+	protected List<Scope> nestedScopesNotSymbols;
+
+	/** The symbols that are also scopes, in definition order. Created on
+	 *  the first such define() so most LocalScopes never allocate it.
+	 */
+	protected List<Scope> scopedSymbols;
+
+	protected List<Scope> nestedScopedSymbolsView; // lazily-created read-only views
+	protected List<Scope> nestedScopesView;
+
+	protected boolean frozen; // see freeze()
+
+	protected List<ScopeListener> listeners; // null until the first is added
+
+	/** Cached {@link #isObserved()} as listenerEpoch&lt;&lt;1 | 1 if observed,
+	 *  valid while the epoch matches {@link #listenerEpoch}; one int so
+	 *  threads defining into a concurrent scope never see half an update.
+	 *  Until some scope gets a listener, every scope's cache is valid and
+	 *  false, so defining costs no walk up the enclosing chain.
+	 */
+	protected int observedState;
+
+	/** Bumped when a listener is added anywhere, or a scope holding nested
+	 *  scopes moves under an observed one, since cached answers of
+	 *  scopes below may then be wrong. Listener removal doesn't bump it; a
+	 *  stale true only costs fireEvent() a walk.
+	 */
+	protected static volatile int listenerEpoch;
+
+	/** Qualifier strings computed so far, most recent first, at most
+	 *  {@link #MAX_CACHED_QUALIFIERS}. Entries are immutable, so threads
+	 *  reading a frozen tree can share and replace them without locks.
+	 *  Dropped for the whole subtree when this scope moves.
+	 */
+	protected QualifierCache qualifiers;
+
+	public static final int MAX_CACHED_QUALIFIERS = 4;
+
+	protected static final class QualifierCache {
+		public final String separator;
+		public final boolean stack; // toScopeStackString() rather than toQualifierString()
+		public final String text;
+		public final QualifierCache next;
+
+		public QualifierCache(String separator, boolean stack, String text, QualifierCache next) {
+			this.separator = separator;
+			this.stack = stack;
+			this.text = text;
+			this.next = next;
+		}
+	}
 
 	public BaseScope() { }
 
@@ -36,9 +96,41 @@ public abstract class BaseScope implements Scope {
 		return symbols.get(name);
 	}
 
+	@Override
+	public Symbol getSymbol(Name name) {
+		if ( symbols instanceof SymbolMap ) {
+			return ((SymbolMap)symbols).get(name);
+		}
+		return symbols.get(name.getText());
+	}
+
 	@Override
 	public void setEnclosingScope(Scope enclosingScope) {
-		this.enclosingScope = enclosingScope;
+		checkNotFrozen();
+		if ( enclosingScope!=this.enclosingScope ) {
+			this.enclosingScope = enclosingScope;
+			forgetQualifiers();
+			observedState = -1; // stale
+			if ( hasNestedScopes() && isObserved() ) {
+				listenerEpoch++;
+			}
+		}
+	}
+
+	/** Drop cached qualifiers here and in all nested scopes, which embed ours */
+	protected void forgetQualifiers() {
+		if ( qualifiers==null &&
+			 (nestedScopesNotSymbols==null || nestedScopesNotSymbols.isEmpty()) &&
+			 (scopedSymbols==null || scopedSymbols.isEmpty()) )
+		{
+			return; // the common case of a scope being created
+		}
+		for (Iterator<Scope> it = ScopeTraversal.scopeIterator(this); it.hasNext(); ) {
+			Scope s = it.next();
+			if ( s instanceof BaseScope ) {
+				((BaseScope)s).qualifiers = null;
+			}
+		}
 	}
 
 	public List<Scope> getAllNestedScopedSymbols() {
@@ -47,18 +139,24 @@ public abstract class BaseScope implements Scope {
 		return scopes;
 	}
 
+	/** Return a read-only view, not a copy, of the scoped symbols */
 	@Override
 	public List<Scope> getNestedScopedSymbols() {
-		List<? extends Symbol> scopes = Utils.filter(getSymbols(), s -> s instanceof Scope);
-		return (List)scopes; // force it to cast
+		if ( nestedScopedSymbolsView==null ) {
+			nestedScopedSymbolsView = new NestedScopeList(false);
+		}
+		return nestedScopedSymbolsView;
 	}
 
+	/** Return a read-only view, not a copy, of the scoped symbols followed
+	 *  by the other nested scopes.
+	 */
 	@Override
 	public List<Scope> getNestedScopes() {
-		ArrayList<Scope> all = new ArrayList<>();
-		all.addAll(getNestedScopedSymbols());
-		all.addAll(nestedScopesNotSymbols);
-		return all;
+		if ( nestedScopesView==null ) {
+			nestedScopesView = new NestedScopeList(true);
+		}
+		return nestedScopesView;
 	}
 
 	/** Add a nested scope to this scope; could also be a FunctionSymbol
@@ -66,11 +164,22 @@ public abstract class BaseScope implements Scope {
 	 */
 	@Override
 	public void nest(Scope scope) throws IllegalArgumentException {
+		checkNotFrozen();
 		if ( scope instanceof SymbolWithScope ) {
 			throw new IllegalArgumentException("Add SymbolWithScope instance "+
 												   scope.getName()+" via define()");
 		}
+		if ( nestedScopesNotSymbols==null ) {
+			nestedScopesNotSymbols = new ArrayList<>(2);
+		}
 		nestedScopesNotSymbols.add(scope);
+		FunctionSymbol f = FunctionSymbol.getFrameOwner(this);
+		if ( f!=null ) {
+			f.addLocalSlots(scope);
+		}
+		if ( isObserved() ) {
+			fireEvent(l -> l.scopeNested(this, scope));
+		}
 	}
 
 	@Override
@@ -85,17 +194,375 @@ public abstract class BaseScope implements Scope {
 		return null; // not found
 	}
 
+	@Override
+	public Symbol resolve(Name name) {
+		Symbol s = getSymbol(name);
+		if ( s!=null ) {
+			return s;
+		}
+		Scope parent = getEnclosingScope();
+		if ( parent != null ) return parent.resolve(name);
+		return null; // not found
+	}
+
 	public void define(Symbol sym) throws IllegalArgumentException {
+		checkNotFrozen();
 		if ( symbols.containsKey(sym.getName()) ) {
 			throw new IllegalArgumentException("duplicate symbol "+sym.getName());
 		}
+		List<ClassSymbol> shadowedSubclasses = getSubclassesShadowedBy(sym);
 		sym.setScope(this);
 		sym.setInsertionOrderNumber(symbols.size()); // set to insertion position from 0
 		symbols.put(sym.getName(), sym);
+		if ( sym instanceof Scope ) {
+			if ( scopedSymbols==null ) {
+				scopedSymbols = new ArrayList<>(2);
+			}
+			scopedSymbols.add((Scope)sym);
+		}
+		if ( sym instanceof VariableSymbol ) {
+			FunctionSymbol f = FunctionSymbol.getFrameOwner(this);
+			if ( f!=null ) {
+				f.addLocalSlot((VariableSymbol)sym);
+			}
+		}
+		ClassSymbol.relink(shadowedSubclasses);
+		if ( isObserved() ) {
+			fireEvent(l -> l.symbolDefined(this, sym));
+		}
+	}
+
+	@Override
+	public Symbol undefine(String name) {
+		checkNotFrozen();
+		Symbol sym = symbols.get(name);
+		if ( sym==null ) return null;
+		List<Symbol> removed = Collections.singletonList(sym);
+		List<ClassSymbol> subclasses = ClassSymbol.getSubclassesOf(removed);
+		symbols.remove(name);
+		symbolsChanged(removed);
+		ClassSymbol.relink(subclasses);
+		if ( isObserved() ) {
+			fireEvent(l -> l.symbolRemoved(this, sym));
+		}
+		return sym;
+	}
+
+	@Override
+	public Symbol replace(Symbol sym) throws IllegalArgumentException {
+		checkNotFrozen();
+		Symbol old = symbols.get(sym.getName());
+		if ( old==null ) {
+			throw new IllegalArgumentException("no symbol "+sym.getName()+" to replace");
+		}
+		List<Symbol> removed = Collections.singletonList(old);
+		List<ClassSymbol> subclasses = ClassSymbol.getSubclassesOf(removed);
+		symbols.put(sym.getName(), sym); // keeps old's position
+		sym.setScope(this);
+		symbolsChanged(removed);
+		ClassSymbol.relink(subclasses);
+		if ( isObserved() ) {
+			fireEvent(l -> l.symbolReplaced(this, old, sym));
+		}
+		return old;
+	}
+
+	@Override
+	public boolean unnest(Scope scope) {
+		checkNotFrozen();
+		if ( nestedScopesNotSymbols==null ) return false;
+		for (int i = 0; i<nestedScopesNotSymbols.size(); i++) {
+			if ( nestedScopesNotSymbols.get(i)==scope ) {
+				nestedScopesNotSymbols.remove(i);
+				if ( isObserved() ) {
+					fireEvent(l -> l.scopeUnnested(this, scope));
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/** Remove unit's symbols in one pass, define the new ones, then bring
+	 *  insertion order, slots and caches up to date once.
+	 */
+	@Override
+	public List<Symbol> replaceUnit(Object unit, Collection<? extends Symbol> syms)
+		throws IllegalArgumentException
+	{
+		checkNotFrozen();
+		Set<String> names = new HashSet<>();
+		for (Symbol s : syms) {
+			Symbol existing = symbols.get(s.getName());
+			if ( !names.add(s.getName()) || existing!=null && !unit.equals(existing.getUnit()) ) {
+				throw new IllegalArgumentException("duplicate symbol "+s.getName());
+			}
+		}
+		List<Symbol> removed = new ArrayList<>();
+		for (Symbol s : symbols.values()) {
+			if ( unit.equals(s.getUnit()) ) {
+				removed.add(s);
+			}
+		}
+		List<ClassSymbol> subclasses = new ArrayList<>(ClassSymbol.getSubclassesOf(removed));
+		for (Symbol s : syms) {
+			if ( !symbols.containsKey(s.getName()) ) {
+				subclasses.addAll(getSubclassesShadowedBy(s));
+			}
+		}
+		if ( symbols instanceof SymbolMap ) {
+			((SymbolMap)symbols).removeIf(s -> unit.equals(s.getUnit()));
+		}
+		else {
+			for (Symbol s : removed) {
+				symbols.remove(s.getName());
+			}
+		}
+		for (Symbol s : syms) {
+			s.setUnit(unit);
+			s.setScope(this);
+			symbols.put(s.getName(), s);
+		}
+		symbolsChanged(removed);
+		ClassSymbol.relink(subclasses);
+		if ( isObserved() ) {
+			for (Symbol s : removed) {
+				fireEvent(l -> l.symbolRemoved(this, s));
+			}
+			for (Symbol s : syms) {
+				fireEvent(l -> l.symbolDefined(this, s));
+			}
+		}
+		return removed;
+	}
+
+	@Override
+	public void addScopeListener(ScopeListener l) {
+		if ( listeners==null ) {
+			listeners = new CopyOnWriteArrayList<>();
+		}
+		listeners.add(l);
+		listenerEpoch++;
+	}
+
+	@Override
+	public void removeScopeListener(ScopeListener l) {
+		if ( listeners!=null ) {
+			listeners.remove(l);
+		}
+	}
+
+	/** True if this scope or one enclosing it may have listeners */
+	protected boolean isObserved() {
+		int epoch = listenerEpoch;
+		int state = observedState;
+		if ( state>>>1!=epoch ) {
+			boolean o = false;
+			for (Scope s = this; s!=null && !o; s = s.getEnclosingScope()) {
+				o = s instanceof BaseScope && ((BaseScope)s).listeners!=null;
+			}
+			state = epoch<<1 | (o ? 1 : 0);
+			observedState = state;
+		}
+		return (state & 1)!=0;
+	}
+
+	protected boolean hasNestedScopes() {
+		return scopedSymbols!=null && !scopedSymbols.isEmpty() ||
+			   nestedScopesNotSymbols!=null && !nestedScopesNotSymbols.isEmpty();
+	}
+
+	/** Send event to the listeners of this scope and of every scope
+	 *  enclosing it, innermost first.
+	 */
+	protected void fireEvent(Consumer<ScopeListener> event) {
+		for (Scope s = this; s!=null; s = s.getEnclosingScope()) {
+			if ( s instanceof BaseScope && ((BaseScope)s).listeners!=null ) {
+				for (ScopeListener l : ((BaseScope)s).listeners) {
+					event.accept(l);
+				}
+			}
+		}
+	}
+
+	/** Bring what we derive from the symbols up to date after removing or
+	 *  replacing some of them: insertion order, the scoped symbol list and
+	 *  frame slots, where new variables take the next free slots. Removed
+	 *  symbols not added back no longer belong to this scope.
+	 *  Subclasses add their own derived data.
+	 */
+	protected void symbolsChanged(Collection<Symbol> removed) {
+		List<? extends Symbol> syms = getSymbols();
+		scopedSymbols = null;
+		for (int i = 0; i<syms.size(); i++) {
+			Symbol s = syms.get(i);
+			s.setInsertionOrderNumber(i);
+			if ( s instanceof Scope ) {
+				if ( scopedSymbols==null ) {
+					scopedSymbols = new ArrayList<>(2);
+				}
+				scopedSymbols.add((Scope)s);
+			}
+		}
+		for (Symbol s : removed) {
+			if ( symbols.get(s.getName())==s ) continue; // added back, say by replaceUnit()
+			if ( s.getScope()==this ) {
+				s.setScope(null);
+			}
+			if ( s instanceof VariableSymbol ) {
+				((VariableSymbol)s).localSlot = -1;
+			}
+		}
+		FunctionSymbol f = FunctionSymbol.getFrameOwner(this);
+		if ( f!=null ) {
+			f.addLocalSlots(this);
+		}
 	}
 
 	public Scope getEnclosingScope() { return enclosingScope; }
 
+	/** Classes within this scope whose superclass resolved, from outside
+	 *  it, to a class named like sym; once sym, a class, is defined here
+	 *  their superclass name means sym instead. Call before defining sym.
+	 */
+	protected List<ClassSymbol> getSubclassesShadowedBy(Symbol sym) {
+		if ( !(sym instanceof ClassSymbol) ) return Collections.emptyList();
+		Symbol outer = resolve(sym.getName());
+		if ( !(outer instanceof ClassSymbol) || ((ClassSymbol)outer).subclasses==null ) {
+			return Collections.emptyList();
+		}
+		List<ClassSymbol> subs = new ArrayList<>();
+		for (ClassSymbol sub : ((ClassSymbol)outer).subclasses) {
+			for (Scope s = sub.getEnclosingScope(); s!=null; s = s.getEnclosingScope()) {
+				if ( s==this ) {
+					subs.add(sub);
+					break;
+				}
+			}
+		}
+		return subs;
+	}
+
+	/** Resolve all names in one walk up the scope chain rather than one
+	 *  walk per name. Each level is only asked for names still unresolved
+	 *  and we stop once all are found. Allocates nothing.
+	 *
+	 *  From the first scope whose {@link #resolvesLocally()} is false, or
+	 *  that isn't a BaseScope, the rest of the names go through that
+	 *  scope's resolve() so its lookup rules apply. To record dependencies,
+	 *  use {@link DependencyRecorder#resolveAll}.
+	 */
+	@Override
+	public int resolveAll(String[] names, Symbol[] out) {
+		int n = names.length;
+		if ( out.length<n ) {
+			throw new IllegalArgumentException("need "+n+" result slots; got "+out.length);
+		}
+		Arrays.fill(out, 0, n, null);
+		int remaining = n;
+		for (Scope s = this; s!=null && remaining>0; s = s.getEnclosingScope()) {
+			if ( !(s instanceof BaseScope) || !((BaseScope)s).resolvesLocally() ) { // resolve the rest their way
+				for (int i = 0; i<n; i++) {
+					if ( out[i]==null ) {
+						out[i] = s.resolve(names[i]);
+						if ( out[i]!=null ) remaining--;
+					}
+				}
+				break;
+			}
+			BaseScope b = (BaseScope)s;
+			for (int i = 0; i<n; i++) {
+				if ( out[i]==null ) {
+					out[i] = b.resolveLocally(names[i]);
+					if ( out[i]!=null ) remaining--;
+				}
+			}
+		}
+		return n-remaining;
+	}
+
+	/** Resolve name like {@link #resolve(String)} but return where the
+	 *  symbol was found relative to this scope: how many scopes up, how many
+	 *  function frames out, and its frame slot if it's a local. Slots of the
+	 *  defining function are assigned when it's frozen or, in an open table,
+	 *  on first need; see
+	 *  {@link FunctionSymbol#assignLocalSlots()}. Return null if not found.
+	 */
+	public LocalAddress resolveAddress(String name) {
+		int depth = 0;
+		int frameDepth = 0;
+		for (Scope s = this; s!=null; s = s.getEnclosingScope()) {
+			Symbol sym = s instanceof BaseScope ? ((BaseScope)s).resolveLocally(name) : s.getSymbol(name);
+			if ( sym!=null ) {
+				int slot = -1;
+				if ( sym instanceof VariableSymbol ) {
+					VariableSymbol v = (VariableSymbol)sym;
+					FunctionSymbol f = v.getEnclosingFunction();
+					if ( f!=null && v.getLocalSlot()<0 && !f.isFrozen() ) {
+						f.assignLocalSlots();
+					}
+					slot = v.getLocalSlot();
+				}
+				return new LocalAddress(depth, frameDepth, slot, sym);
+			}
+			if ( s instanceof FunctionSymbol ) {
+				frameDepth++;
+			}
+			depth++;
+		}
+		return null;
+	}
+
+	/** Look up name in this scope only, the way resolve() does before
+	 *  moving on to the enclosing scope. Override it along with resolve().
+	 */
+	protected Symbol resolveLocally(String name) {
+		return getSymbol(name);
+	}
+
+	/** Is resolve(name) resolveLocally(name) then, if not found, the
+	 *  enclosing scope's resolve(name)? If so, {@link #resolveAll} can look
+	 *  in this scope itself. A subclass overriding resolve() some other way
+	 *  without overriding resolveLocally() to match must return false.
+	 */
+	protected boolean resolvesLocally() {
+		return true;
+	}
+
+	/** Freeze this scope then everything nested within. Symbols move to a
+	 *  trimmed, read-only {@link SymbolMap} and the nested scope lists
+	 *  become read-only copies.
+	 */
+	@Override
+	public void freeze() {
+		if ( frozen ) return;
+		SymbolMap frozenSymbols = symbols instanceof SymbolMap ?
+			(SymbolMap)symbols : new SymbolMap(symbols);
+		frozenSymbols.freeze();
+		symbols = frozenSymbols;
+		if ( scopedSymbols!=null ) {
+			scopedSymbols = Collections.unmodifiableList(new ArrayList<>(scopedSymbols));
+		}
+		if ( nestedScopesNotSymbols!=null ) {
+			nestedScopesNotSymbols = Collections.unmodifiableList(new ArrayList<>(nestedScopesNotSymbols));
+		}
+		getNestedScopedSymbols(); // create views now so readers never race to create them
+		getNestedScopes();
+		frozen = true;
+		for (Scope s : getNestedScopes()) {
+			s.freeze();
+		}
+	}
+
+	@Override
+	public boolean isFrozen() { return frozen; }
+
+	protected void checkNotFrozen() {
+		if ( frozen ) {
+			throw new IllegalStateException("scope "+getName()+" is frozen");
+		}
+	}
+
 	/** Walk up enclosingScope until we find topmost. Note this is
 	 *  enclosing scope not necessarily parent. This will usually be
 	 *  a global scope or something, depending on your scope tree.
@@ -135,6 +602,9 @@ public abstract class BaseScope implements Scope {
 		return scopes;
 	}
 
+	/** Return a read-only view of the symbols, not a copy, unless a
+	 *  subclass swapped in a map whose values() isn't a List.
+	 */
 	@Override
 	public List<? extends Symbol> getSymbols() {
 		Collection<Symbol> values = symbols.values();
@@ -146,14 +616,24 @@ public abstract class BaseScope implements Scope {
 
 	public List<? extends Symbol> getAllSymbols() {
 		List<Symbol> syms = new ArrayList<>();
-		syms.addAll(getSymbols());
-		for (Symbol s : symbols.values()) {
-			if ( s instanceof Scope ) {
-				Scope scope = (Scope)s;
-				syms.addAll(scope.getAllSymbols());
+		addAllSymbols(syms);
+		return syms;
+	}
+
+	/** Add what getAllSymbols() returns to syms; one list is filled for the
+	 *  whole tree rather than a list per scope copied into its parent's.
+	 */
+	protected void addAllSymbols(List<Symbol> syms) {
+		List<? extends Symbol> mine = getSymbols();
+		syms.addAll(mine);
+		for (Symbol s : mine) {
+			if ( s instanceof BaseScope ) {
+				((BaseScope)s).addAllSymbols(syms);
+			}
+			else if ( s instanceof Scope ) {
+				syms.addAll(((Scope)s).getAllSymbols());
 			}
 		}
-		return syms;
 	}
 
 	@Override
@@ -168,12 +648,73 @@ public abstract class BaseScope implements Scope {
 
 	public String toString() { return symbols.keySet().toString(); }
 
+	/** Names of the scopes from this one out to the root, like
+	 *  myblock:mymethod:myclass. Cached like {@link #toQualifierString}.
+	 */
 	public String toScopeStackString(String separator) {
-		return Utils.toScopeStackString(this, separator);
+		return getQualifier(separator, true);
 	}
 
+	/** Names of the scopes from the root in to this one, like
+	 *  myclass:mymethod:myblock. Cached per separator, so repeat calls
+	 *  are a lookup, and a first call costs one concatenation per scope
+	 *  not yet cached on the way out.
+	 */
 	public String toQualifierString(String separator) {
-		return Utils.toQualifierString(this, separator);
+		return getQualifier(separator, false);
+	}
+
+	protected String getQualifier(String separator, boolean stack) {
+		String q = getCachedQualifier(separator, stack);
+		if ( q!=null ) return q;
+		// go out until we find a cached qualifier or a scope we can't cache in
+		List<BaseScope> uncached = new ArrayList<>();
+		uncached.add(this);
+		Scope s = getEnclosingScope();
+		while ( s!=null ) {
+			if ( !(s instanceof BaseScope) ) {
+				q = stack ? Utils.toScopeStackString(s, separator) : Utils.toQualifierString(s, separator);
+				break;
+			}
+			q = ((BaseScope)s).getCachedQualifier(separator, stack);
+			if ( q!=null ) break;
+			uncached.add((BaseScope)s);
+			s = s.getEnclosingScope();
+		}
+		// then back in, caching as we go
+		for (int i = uncached.size()-1; i>=0; i--) {
+			BaseScope b = uncached.get(i);
+			String name = b.getName();
+			q = q==null ? name : stack ? name+separator+q : q+separator+name;
+			b.cacheQualifier(separator, stack, q);
+		}
+		return q;
+	}
+
+	protected String getCachedQualifier(String separator, boolean stack) {
+		for (QualifierCache c = qualifiers; c!=null; c = c.next) {
+			if ( c.stack==stack && c.separator.equals(separator) ) {
+				return c.text;
+			}
+		}
+		return null;
+	}
+
+	protected void cacheQualifier(String separator, boolean stack, String text) {
+		QualifierCache[] keep = new QualifierCache[MAX_CACHED_QUALIFIERS-1];
+		int n = 0;
+		QualifierCache c = qualifiers;
+		for (; c!=null && n<keep.length; c = c.next) {
+			keep[n++] = c;
+		}
+		QualifierCache tail = qualifiers;
+		if ( c!=null ) { // full; copy the most recent entries, dropping the oldest
+			tail = null;
+			for (int i = n-1; i>=0; i--) {
+				tail = new QualifierCache(keep[i].separator, keep[i].stack, keep[i].text, tail);
+			}
+		}
+		qualifiers = new QualifierCache(separator, stack, text, tail);
 	}
 
 	public String toTestString() {
@@ -185,4 +726,36 @@ public abstract class BaseScope implements Scope {
 		List<String> syms = Utils.map(allSymbols, s -> s.getScope().getName() + scopePathSeparator + s.getName());
 		return Utils.join(syms, separator);
 	}
+
+	/** Read-only concatenation of scopedSymbols and, optionally,
+	 *  nestedScopesNotSymbols that tracks both lists as they grow.
+	 */
+	protected class NestedScopeList extends AbstractList<Scope> implements RandomAccess {
+		protected final boolean includeNonSymbols;
+
+		public NestedScopeList(boolean includeNonSymbols) {
+			this.includeNonSymbols = includeNonSymbols;
+		}
+
+		@Override
+		public Scope get(int i) {
+			int n = scopedSymbols!=null ? scopedSymbols.size() : 0;
+			if ( i>=0 && i<n ) {
+				return scopedSymbols.get(i);
+			}
+			if ( includeNonSymbols && i>=n && nestedScopesNotSymbols!=null ) {
+				return nestedScopesNotSymbols.get(i-n);
+			}
+			throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size());
+		}
+
+		@Override
+		public int size() {
+			int n = scopedSymbols!=null ? scopedSymbols.size() : 0;
+			if ( includeNonSymbols && nestedScopesNotSymbols!=null ) {
+				n += nestedScopesNotSymbols.size();
+			}
+			return n;
+		}
+	}
 }
@@ -2,9 +2,6 @@ package org.antlr.symtab;
 
 import org.antlr.v4.runtime.ParserRuleContext;
 
-import java.util.Collections;
-import java.util.List;
-
 /** An abstract base class used to house common functionality.
  *  You can associate a node in the parse tree that is responsible
  *  for defining this symbol.
@@ -15,6 +12,7 @@ public abstract class BaseSymbol implements Symbol {
 	protected Scope scope;      		 // All symbols know what scope contains them.
 	protected ParserRuleContext defNode; // points at definition node in tree
 	protected int lexicalOrder; 		 // order seen or insertion order from 0; compilers often need this
+	protected Object unit;               // compilation unit that defined this, if tracked
 
 	public BaseSymbol(String name) { this.name = name; }
 
@@ -22,6 +20,9 @@ public abstract class BaseSymbol implements Symbol {
 	@Override public Scope getScope() { return scope; }
 	@Override public void setScope(Scope scope) { this.scope = scope; }
 
+	@Override public Object getUnit() { return unit; }
+	@Override public void setUnit(Object unit) { this.unit = unit; }
+
 	public Type getType() { return type; }
 	public void setType(Type type) { this.type = type; }
 
@@ -59,11 +60,9 @@ public abstract class BaseSymbol implements Symbol {
 		this.lexicalOrder = i;
 	}
 
+	/** Our scope's qualifier, cached by the scope, then our name */
 	public String getFullyQualifiedName(String scopePathSeparator) {
-		List<Scope> path = scope.getEnclosingPathToRoot();
-		Collections.reverse(path);
-		String qualifier = Utils.joinScopeNames(path, scopePathSeparator);
-		return qualifier + scopePathSeparator + name;
+		return scope.toQualifierString(scopePathSeparator) + scopePathSeparator + name;
 	}
 
 	public String toString() {
@@ -1,9 +1,14 @@
 package org.antlr.symtab;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /** A symbol representing the class. It is a kind of data aggregate
@@ -13,6 +18,53 @@ public class ClassSymbol extends DataAggregateSymbol {
 	protected String superClassName; // null if this is Object
 	protected int nextFreeMethodSlot = 0; // next slot to allocate
 
+	/** Cached result of resolving superClassName; null until resolved.
+	 *  Only successful resolutions are cached so a superclass defined
+	 *  after this class is still found. Reset by {@link #setSuperClass}
+	 *  and {@link #setEnclosingScope}, when the class is removed or
+	 *  replaced, and when a scope nearer to us defines a class of that
+	 *  name, shadowing it.
+	 */
+	protected ClassSymbol superClassScope;
+
+	/** Method visible in this class for each slot number (the vtable),
+	 *  computed once by {@link #seal()}. Unused slots are null.
+	 */
+	protected MethodSymbol[] methodTable;
+	protected Set<MethodSymbol> sealedMethods; // read-only getMethods() result
+
+	/** Like methodTable while still open: built on first {@link #getMethod(int)}
+	 *  and dropped along with the member cache.
+	 */
+	protected MethodSymbol[] methodsBySlot;
+
+	/** Results of {@link #resolveMember} by name, including misses as null
+	 *  values. Created on first cacheable lookup and dropped whenever this
+	 *  class or one up its superclass chain gets a new member or superclass.
+	 */
+	protected Map<String, Symbol> memberCache;
+	protected long memberCacheHits;
+	protected long memberCacheMisses;
+
+	/** Classes that resolved members through this one; they must forget
+	 *  their cached lookups when our members change. Identity-based since
+	 *  symbols compare equal by name.
+	 */
+	protected Set<ClassSymbol> subclasses;
+
+	/** Cohen display: our superclass chain from the root class down to us,
+	 *  so display[i] is our ancestor at depth i and display[depth] is this.
+	 *  Computed on demand, reusing the superclass's display, and kept only
+	 *  once the whole chain resolves. Dropped along with the resolved
+	 *  superclass, here and in all known subclasses.
+	 */
+	protected ClassSymbol[] display;
+
+	/** Once frozen, every member visible in this class, inherited or not,
+	 *  so {@link #resolveMember} is a single lookup with no chain walk.
+	 */
+	protected SymbolMap frozenMembers;
+
 	public ClassSymbol(String name) {
 		super(name);
 	}
@@ -21,15 +73,29 @@ public class ClassSymbol extends DataAggregateSymbol {
 	 *  superclass is not resolved looking up the enclosing scope chain.
 	 */
 	public ClassSymbol getSuperClassScope() {
-		if ( superClassName!=null ) {
+		if ( superClassScope==null && superClassName!=null && !isFrozen() ) {
 			if ( getEnclosingScope()!=null ) {
 				Symbol superClass = getEnclosingScope().resolve(superClassName);
 				if ( superClass instanceof ClassSymbol ) {
-					return (ClassSymbol)superClass;
+					superClassScope = (ClassSymbol)superClass;
+					superClassScope.addSubclass(this);
 				}
 			}
 		}
-		return null;
+		return superClassScope;
+	}
+
+	/** Changing where we live can change what superClassName resolves to. */
+	@Override
+	public void setEnclosingScope(Scope enclosingScope) {
+		super.setEnclosingScope(enclosingScope);
+		forgetSuperClassScope();
+	}
+
+	@Override
+	public void define(Symbol sym) throws IllegalArgumentException {
+		super.define(sym);
+		invalidateMemberCache();
 	}
 
 	/** Multiple superclass or interface implementations and the like... */
@@ -53,11 +119,54 @@ public class ClassSymbol extends DataAggregateSymbol {
 		return null; // not found
 	}
 
+	@Override
+	public Symbol resolve(Name name) {
+		Symbol s = frozenMembers!=null ? frozenMembers.get(name) : resolveMember(name.getText());
+		if ( s!=null ) {
+			return s;
+		}
+		Scope parent = getEnclosingScope();
+		if ( parent != null ) return parent.resolve(name);
+		return null; // not found
+	}
+
+	@Override
+	protected Symbol resolveLocally(String name) {
+		return resolveMember(name);
+	}
+
 	/** Look for a member with this name in this scope or any super class.
 	 *  Return null if no member found.
 	 */
 	@Override
 	public Symbol resolveMember(String name) {
+		if ( frozenMembers!=null ) {
+			return frozenMembers.get(name);
+		}
+		if ( memberCache!=null ) {
+			Symbol s = memberCache.get(name);
+			if ( s!=null || memberCache.containsKey(name) ) {
+				memberCacheHits++;
+				return s;
+			}
+		}
+		memberCacheMisses++;
+		Symbol s = lookupMember(name);
+		// can't cache while part of the chain is unresolved; later
+		// definitions of missing superclasses wouldn't invalidate us
+		if ( isHierarchyResolved() ) {
+			if ( memberCache==null ) {
+				memberCache = new HashMap<>();
+			}
+			memberCache.put(name, s);
+		}
+		return s;
+	}
+
+	/** Uncached {@link #resolveMember}: look in this class, then walk up
+	 *  the superclass chain.
+	 */
+	protected Symbol lookupMember(String name) {
 		Symbol s = symbols.get(name);
 		if ( s instanceof MemberSymbol ) {
 			return s;
@@ -66,6 +175,7 @@ public class ClassSymbol extends DataAggregateSymbol {
 		List<ClassSymbol> superClassScopes = getSuperClassScopes();
 		if ( superClassScopes!=null ) {
 			for (ClassSymbol sup : superClassScopes) {
+				sup.addSubclass(this);
 				s = sup.resolveMember(name);
 				if ( s instanceof MemberSymbol ) {
 					return s;
@@ -75,6 +185,179 @@ public class ClassSymbol extends DataAggregateSymbol {
 		return null;
 	}
 
+	/** True if every named superclass up the chain resolves to a class.
+	 *  Allocation-free: a class holding a member cache or display is known
+	 *  to be resolved, as both are dropped when its chain changes, and
+	 *  otherwise we walk the chain. A cyclic chain counts as unresolved.
+	 */
+	protected boolean isHierarchyResolved() {
+		ClassSymbol mark = this; // Brent's cycle detection
+		int power = 1, steps = 0;
+		for (ClassSymbol c = this; ; ) {
+			if ( c.memberCache!=null || c.display!=null ) return true;
+			if ( c.superClassName==null ) return true;
+			c = c.getSuperClassScope();
+			if ( c==null || c==mark ) return false;
+			if ( ++steps==power ) {
+				mark = c;
+				power <<= 1;
+				steps = 0;
+			}
+		}
+	}
+
+	/** Drop cached member lookups in this class and all known subclasses. */
+	public void invalidateMemberCache() {
+		memberCache = null;
+		methodsBySlot = null;
+		if ( subclasses!=null ) {
+			for (ClassSymbol sub : subclasses) {
+				sub.invalidateMemberCache();
+			}
+		}
+	}
+
+	protected void addSubclass(ClassSymbol sub) {
+		if ( isFrozen() ) return; // we never change so nobody needs to hear about it
+		if ( subclasses==null ) {
+			subclasses = Collections.newSetFromMap(new IdentityHashMap<>());
+		}
+		subclasses.add(sub);
+	}
+
+	/** Fields, then methods as if defined in order after the superclass was
+	 *  set, then the same for known subclasses, whose slots follow ours.
+	 */
+	@Override
+	public void renumberSlots() {
+		super.renumberSlots();
+		ClassSymbol superClassScope = getSuperClassScope();
+		nextFreeMethodSlot = superClassScope!=null ? superClassScope.getNumberOfMethods() : 0;
+		for (MemberSymbol s : getSymbols()) {
+			if ( s instanceof MethodSymbol ) {
+				((MethodSymbol)s).slot = -1;
+				setSlotNumber(s);
+			}
+		}
+		invalidateMemberCache();
+		if ( subclasses!=null ) {
+			for (ClassSymbol sub : new ArrayList<>(subclasses)) {
+				sub.renumberSlots();
+			}
+		}
+	}
+
+	/** Classes known to extend any class among syms */
+	protected static List<ClassSymbol> getSubclassesOf(Collection<? extends Symbol> syms) {
+		List<ClassSymbol> subs = null;
+		for (Symbol s : syms) {
+			if ( s instanceof ClassSymbol && ((ClassSymbol)s).subclasses!=null ) {
+				if ( subs==null ) {
+					subs = new ArrayList<>();
+				}
+				subs.addAll(((ClassSymbol)s).subclasses);
+			}
+		}
+		return subs!=null ? subs : Collections.emptyList();
+	}
+
+	/** The classes that subs extended were removed or replaced; resolve
+	 *  their superclasses again, now or later, renumber their slots and
+	 *  tell listeners. Subclasses that went away along with their
+	 *  superclass are skipped.
+	 */
+	protected static void relink(List<ClassSymbol> subs) {
+		for (ClassSymbol sub : subs) {
+			if ( sub.getEnclosingScope()!=null && !sub.isSealed() ) {
+				sub.forgetSuperClassScope();
+				sub.renumberSlots();
+				if ( sub.isObserved() ) {
+					String superClassName = sub.superClassName;
+					sub.fireEvent(l -> l.superClassChanged(sub, superClassName));
+				}
+			}
+		}
+	}
+
+	/** Unhook from the resolved superclass and drop caches built through it. */
+	protected void forgetSuperClassScope() {
+		if ( superClassScope!=null && superClassScope.subclasses!=null ) {
+			superClassScope.subclasses.remove(this);
+		}
+		superClassScope = null;
+		invalidateMemberCache();
+		invalidateDisplay();
+	}
+
+	/** Drop the display of this class and all known subclasses. */
+	protected void invalidateDisplay() {
+		display = null;
+		if ( subclasses!=null ) {
+			for (ClassSymbol sub : subclasses) {
+				sub.invalidateDisplay();
+			}
+		}
+	}
+
+	/** Is this class c or does it extend c, directly or not? Two array
+	 *  reads once both displays are computed; adding classes never
+	 *  recomputes those of existing ones.
+	 */
+	public boolean isSubclassOf(ClassSymbol c) {
+		if ( c==this ) return true;
+		ClassSymbol[] d = getDisplay();
+		int depth = c.getHierarchyDepth();
+		return depth<d.length && d[depth]==c;
+	}
+
+	/** Number of superclasses up the chain; 0 for a root class */
+	public int getHierarchyDepth() {
+		return getDisplay().length-1;
+	}
+
+	/** The superclass chain from the root class down to this one, so
+	 *  a class c is our superclass if c is at index c.getHierarchyDepth().
+	 *  Compiled code can test subclassing the same way with per-class
+	 *  tables of, say, type indexes. Don't modify the array.
+	 */
+	public ClassSymbol[] getDisplay() {
+		ClassSymbol[] d = display;
+		if ( d!=null ) return d;
+		List<ClassSymbol> chain = new ArrayList<>(); // this up to first class with a display
+		Set<ClassSymbol> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+		ClassSymbol[] prefix = null;
+		boolean resolved = true;
+		for (ClassSymbol c = this; c!=null; c = c.getSuperClassScope()) {
+			if ( c!=this && c.display!=null ) {
+				prefix = c.display;
+				break;
+			}
+			if ( !seen.add(c) ) { // cyclic hierarchy
+				resolved = false;
+				break;
+			}
+			chain.add(c);
+			if ( c.superClassName!=null && c.getSuperClassScope()==null ) {
+				resolved = false;
+			}
+		}
+		int base = prefix!=null ? prefix.length : 0;
+		d = prefix!=null ? Arrays.copyOf(prefix, base+chain.size()) : new ClassSymbol[chain.size()];
+		for (int i = 0; i<chain.size(); i++) {
+			d[base+i] = chain.get(chain.size()-1-i);
+		}
+		if ( resolved ) {
+			display = d;
+		}
+		return d;
+	}
+
+	/** Number of {@link #resolveMember} calls answered from the cache */
+	public long getMemberCacheHits() { return memberCacheHits; }
+
+	/** Number of {@link #resolveMember} calls that had to walk the hierarchy */
+	public long getMemberCacheMisses() { return memberCacheMisses; }
+
 	/** Look for a field with this name in this scope or any super class.
 	 *  Return null if no field found.
 	 */
@@ -99,8 +382,16 @@ public class ClassSymbol extends DataAggregateSymbol {
 	}
 
 	public void setSuperClass(String superClassName) {
+		if ( isSealed() ) {
+			throw new IllegalStateException("can't change superclass of sealed class "+name);
+		}
+		forgetSuperClassScope();
+		String oldSuperClassName = this.superClassName;
 		this.superClassName = superClassName;
 		nextFreeMethodSlot = getNumberOfMethods();
+		if ( isObserved() ) {
+			fireEvent(l -> l.superClassChanged(this, oldSuperClassName));
+		}
 	}
 
 	public String getSuperClassName() {
@@ -142,18 +433,100 @@ public class ClassSymbol extends DataAggregateSymbol {
 
 	/** Return the set of all methods either inherited or not */
 	public Set<MethodSymbol> getMethods() {
+		if ( isSealed() ) return sealedMethods;
 		Set<MethodSymbol> methods = new LinkedHashSet<>();
 		ClassSymbol superClassScope = getSuperClassScope();
 		if ( superClassScope!=null) {
 			methods.addAll(superClassScope.getMethods());
 		}
-		methods.removeAll(getDefinedMethods()); // override method from superclass
-		methods.addAll( getDefinedMethods() );
+		Set<MethodSymbol> defined = getDefinedMethods();
+		methods.removeAll(defined); // override method from superclass
+		methods.addAll(defined);
 		return methods;
 	}
 
+	/** Return the method visible in this class at a slot number, or null
+	 *  if no method occupies that slot. This is an array read, except the
+	 *  first time after this class or a superclass changes while open.
+	 */
+	public MethodSymbol getMethod(int slot) {
+		MethodSymbol[] bySlot = isSealed() ? methodTable : methodsBySlot;
+		if ( bySlot==null ) {
+			bySlot = indexMethodsBySlot(getMethods());
+			methodsBySlot = bySlot;
+		}
+		return slot>=0 && slot<bySlot.length ? bySlot[slot] : null;
+	}
+
+	protected static MethodSymbol[] indexMethodsBySlot(Set<MethodSymbol> methods) {
+		int n = 0;
+		for (MethodSymbol m : methods) {
+			n = Math.max(n, m.getSlotNumber()+1);
+		}
+		MethodSymbol[] bySlot = new MethodSymbol[n];
+		for (MethodSymbol m : methods) {
+			if ( m.getSlotNumber()>=0 ) {
+				bySlot[m.getSlotNumber()] = m;
+			}
+		}
+		return bySlot;
+	}
+
+	/** Seal this class and, first, its superclass chain. Besides the field
+	 *  layout, this computes the slot-indexed method table; later calls to
+	 *  {@link #getMethods()} and {@link #getMethod(int)} do not allocate.
+	 */
+	@Override
+	public void seal() {
+		if ( isSealed() ) return;
+		ClassSymbol superClassScope = getSuperClassScope();
+		if ( superClassScope!=null ) {
+			superClassScope.seal();
+		}
+		Set<MethodSymbol> methods = getMethods();
+		methodTable = indexMethodsBySlot(methods);
+		methodsBySlot = null;
+		sealedMethods = Collections.unmodifiableSet(methods);
+		super.seal(); // fields last; this marks us sealed
+	}
+
+	/** Resolve the superclass and seal the layout, then flatten all visible
+	 *  members into one read-only table before freezing the class scope.
+	 */
+	@Override
+	public void freeze() {
+		if ( isFrozen() ) return;
+		getSuperClassScope();
+		seal();
+		getDisplay(); // computed now so readers on other threads never write it
+		SymbolMap members = new SymbolMap();
+		collectMembers(this, members);
+		members.freeze();
+		frozenMembers = members;
+		memberCache = null;
+		super.freeze();
+	}
+
+	/** Add members of c then its superclasses, in the order lookupMember()
+	 *  searches them, without replacing names already present.
+	 */
+	protected static void collectMembers(ClassSymbol c, SymbolMap members) {
+		for (Symbol s : c.symbols.values()) {
+			if ( s instanceof MemberSymbol && !members.containsKey(s.getName()) ) {
+				members.put(s.getName(), s);
+			}
+		}
+		List<ClassSymbol> superClassScopes = c.getSuperClassScopes();
+		if ( superClassScopes!=null ) {
+			for (ClassSymbol sup : superClassScopes) {
+				collectMembers(sup, members);
+			}
+		}
+	}
+
 	@Override
 	public List<? extends FieldSymbol> getFields() {
+		if ( isSealed() ) return sealedFields;
 		List<FieldSymbol> fields = new ArrayList<>();
 		ClassSymbol superClassScope = getSuperClassScope();
 		if ( superClassScope!=null ) {
@@ -186,6 +559,7 @@ public class ClassSymbol extends DataAggregateSymbol {
 	}
 
 	public int getNumberOfFields() {
+		if ( isSealed() ) return fieldTable.length;
 		int n = 0;
 		ClassSymbol superClassScope = getSuperClassScope();
 		if ( superClassScope!=null ) {
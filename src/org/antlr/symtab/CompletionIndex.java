@@ -0,0 +1,300 @@
+package org.antlr.symtab;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/** Answers "which symbols visible from scope S match what the user typed"
+ *  for code completion, by case-insensitive prefix, such as "ge" for
+ *  getName, or by camel humps, such as "gfb" or "gFB" for getFooBar and
+ *  get_foo_bar.
+ *
+ *  Each scope gets a sorted index of its names and of their hump
+ *  initials, built on first use, so a query costs a binary search plus
+ *  the matches in each scope on the way out. Results come innermost scope
+ *  first, as resolve() searches, a class's superclasses before its
+ *  enclosing scope. Within a scope, prefix matches are sorted by name and
+ *  hump matches by initials, then name. A name shadowed by an inner scope
+ *  is left out. Asking for at most max results stops the search there.
+ *
+ *  As a listener, the index keeps newly defined symbols in a sorted
+ *  overflow map until they are a sizable fraction of the scope, then
+ *  re-sorts the scope's index.
+ *  An undefine or replace drops the scope's index, rebuilt on the next
+ *  query, and removing or unnesting a scope drops the indexes of every
+ *  scope within it. Scopes with fewer than {@link #MIN_CACHED} symbols,
+ *  such as most local scopes, are sorted per query and never kept, so
+ *  short-lived scopes that no event will ever remove don't pile up.
+ *  Methods are synchronized so units can be defined in parallel.
+ */
+public class CompletionIndex implements ScopeListener {
+	/** One scope's symbols sorted by lowercase name and by hump initials.
+	 *  Sort keys are the lowercase name or initials, a '\0' and the name,
+	 *  so they are unique and order matches by name within equal keys.
+	 */
+	protected static class ScopeIndex {
+		public final String[] keys;
+		public final Symbol[] symbols; // by keys
+		public final String[] humpKeys;
+		public final Symbol[] humpSymbols;
+		/** Symbols defined since the arrays were built, sorted the same way */
+		public final TreeMap<String, Symbol> added = new TreeMap<>();
+		public final TreeMap<String, Symbol> addedHumps = new TreeMap<>();
+
+		public ScopeIndex(Scope scope) {
+			List<? extends Symbol> syms = scope.getSymbols();
+			int n = syms.size();
+			keys = new String[n];
+			symbols = new Symbol[n];
+			humpKeys = new String[n];
+			humpSymbols = new Symbol[n];
+			sort(syms, false, keys, symbols);
+			sort(syms, true, humpKeys, humpSymbols);
+		}
+
+		protected static void sort(List<? extends Symbol> syms, boolean byHumps, String[] keys, Symbol[] symbols) {
+			Object[][] entries = new Object[syms.size()][];
+			for (int i = 0; i<entries.length; i++) {
+				Symbol s = syms.get(i);
+				entries[i] = new Object[] {sortKey(s, byHumps), s};
+			}
+			Arrays.sort(entries, (a, b) -> ((String)a[0]).compareTo((String)b[0]));
+			for (int i = 0; i<entries.length; i++) {
+				keys[i] = (String)entries[i][0];
+				symbols[i] = (Symbol)entries[i][1];
+			}
+		}
+
+		public void add(Symbol sym) {
+			added.put(sortKey(sym, false), sym);
+			addedHumps.put(sortKey(sym, true), sym);
+		}
+
+		public boolean isStale() {
+			return added.size()>Math.max(MIN_UNSORTED, keys.length/8);
+		}
+	}
+
+	/** Symbols a scope index holds unsorted before it is rebuilt */
+	public static final int MIN_UNSORTED = 64;
+
+	/** Symbols a scope needs for its index to be kept between queries */
+	public static final int MIN_CACHED = 16;
+
+	protected final Map<Scope, ScopeIndex> indexes = new IdentityHashMap<>();
+
+	/** Symbols visible from scope whose names start with prefix, ignoring
+	 *  case.
+	 */
+	public List<Symbol> complete(Scope scope, String prefix) {
+		return complete(scope, prefix, Integer.MAX_VALUE);
+	}
+
+	/** Up to max symbols visible from scope whose names start with prefix,
+	 *  ignoring case.
+	 */
+	public synchronized List<Symbol> complete(Scope scope, String prefix, int max) {
+		return search(scope, key(prefix), false, max);
+	}
+
+	/** Symbols visible from scope whose hump initials start with those of
+	 *  query, ignoring case: "gfb", "gFB" and "gFoB" all find getFooBar.
+	 */
+	public List<Symbol> completeCamelHumps(Scope scope, String query) {
+		return completeCamelHumps(scope, query, Integer.MAX_VALUE);
+	}
+
+	public synchronized List<Symbol> completeCamelHumps(Scope scope, String query, int max) {
+		return search(scope, queryHumps(query), true, max);
+	}
+
+	protected List<Symbol> search(Scope scope, String q, boolean byHumps, int max) {
+		List<Symbol> results = new ArrayList<>();
+		Set<String> seen = new HashSet<>(); // names found so far shadow outer ones
+		Set<Scope> searched = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (Scope s = scope; s!=null && results.size()<max; s = s.getEnclosingScope()) {
+			searchScope(s, q, byHumps, max, results, seen);
+			if ( s instanceof ClassSymbol ) { // like resolve(), inherited members next
+				searched.clear();
+				searched.add(s);
+				for (ClassSymbol c = ((ClassSymbol)s).getSuperClassScope();
+					 c!=null && searched.add(c) && results.size()<max;
+					 c = c.getSuperClassScope())
+				{
+					searchScope(c, q, byHumps, max, results, seen);
+				}
+			}
+		}
+		return results;
+	}
+
+	/** Merge matches from the sorted arrays and the symbols added since,
+	 *  stopping at max results.
+	 */
+	protected void searchScope(Scope scope, String q, boolean byHumps, int max,
+							   List<Symbol> results, Set<String> seen)
+	{
+		ScopeIndex ix = getIndex(scope);
+		String[] keys = byHumps ? ix.humpKeys : ix.keys;
+		Symbol[] syms = byHumps ? ix.humpSymbols : ix.symbols;
+		TreeMap<String, Symbol> added = byHumps ? ix.addedHumps : ix.added;
+		Iterator<Map.Entry<String, Symbol>> more = added.isEmpty() ?
+			Collections.emptyIterator() : added.tailMap(q).entrySet().iterator();
+		Map.Entry<String, Symbol> next = more.hasNext() ? more.next() : null;
+		if ( next!=null && !next.getKey().startsWith(q) ) next = null;
+		boolean membersOnly = scope instanceof ClassSymbol; // what ClassSymbol.resolve() sees
+		int i = lowerBound(keys, q);
+		while ( results.size()<max ) {
+			boolean inArray = i<keys.length && keys[i].startsWith(q);
+			Symbol s;
+			if ( inArray && (next==null || keys[i].compareTo(next.getKey())<0) ) {
+				s = syms[i++];
+			}
+			else if ( next!=null ) {
+				s = next.getValue();
+				next = more.hasNext() ? more.next() : null;
+				if ( next!=null && !next.getKey().startsWith(q) ) next = null;
+			}
+			else {
+				break;
+			}
+			if ( membersOnly && !(s instanceof MemberSymbol) ) continue;
+			if ( seen.add(s.getName()) ) {
+				results.add(s);
+			}
+		}
+	}
+
+	protected ScopeIndex getIndex(Scope scope) {
+		ScopeIndex ix = indexes.get(scope);
+		if ( ix==null || ix.isStale() ) {
+			ix = new ScopeIndex(scope);
+			if ( ix.keys.length>=MIN_CACHED ) {
+				indexes.put(scope, ix);
+			}
+			else {
+				indexes.remove(scope); // shrank below the threshold
+			}
+		}
+		return ix;
+	}
+
+	/** Drop all scope indexes, say to free memory */
+	public synchronized void clear() {
+		indexes.clear();
+	}
+
+	protected static int lowerBound(String[] keys, String q) {
+		int lo = 0, hi = keys.length;
+		while ( lo<hi ) {
+			int mid = (lo+hi)>>>1;
+			if ( keys[mid].compareTo(q)<0 ) lo = mid+1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	protected static String key(String name) {
+		return name.toLowerCase(Locale.ROOT);
+	}
+
+	protected static String sortKey(Symbol sym, boolean byHumps) {
+		String name = sym.getName();
+		return (byHumps ? humps(name) : key(name))+'\0'+name;
+	}
+
+	/** Lowercase initials of name's humps: the first character, any
+	 *  character after '_' or '$', and an uppercase letter after a
+	 *  lowercase letter or digit. getFooBar, get_foo_bar and GetFOOBar
+	 *  give "gfb", "gfb" and "gf".
+	 */
+	public static String humps(String name) {
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i<name.length(); i++) {
+			char c = name.charAt(i);
+			if ( c=='_' || c=='$' ) continue;
+			char prev = i>0 ? name.charAt(i-1) : '_';
+			if ( prev=='_' || prev=='$' ||
+				 Character.isUpperCase(c) && (Character.isLowerCase(prev) || Character.isDigit(prev)) )
+			{
+				buf.append(Character.toLowerCase(c));
+			}
+		}
+		return buf.toString();
+	}
+
+	/** Initials typed as a query: all lowercase means each character is
+	 *  one, like "gfb"; otherwise the first character, uppercase letters
+	 *  and characters after '_' or '$', like "gFB" or "gFoBa".
+	 */
+	protected static String queryHumps(String query) {
+		String lower = key(query);
+		if ( lower.equals(query) ) return query;
+		StringBuilder buf = new StringBuilder();
+		for (int i = 0; i<query.length(); i++) {
+			char c = query.charAt(i);
+			if ( c=='_' || c=='$' ) continue;
+			char prev = i>0 ? query.charAt(i-1) : '_';
+			if ( prev=='_' || prev=='$' || Character.isUpperCase(c) ) {
+				buf.append(Character.toLowerCase(c));
+			}
+		}
+		return buf.toString();
+	}
+
+	@Override
+	public synchronized void symbolDefined(Scope scope, Symbol sym) {
+		ScopeIndex ix = indexes.get(scope);
+		if ( ix!=null ) {
+			ix.add(sym);
+		}
+	}
+
+	@Override
+	public synchronized void symbolRemoved(Scope scope, Symbol sym) {
+		indexes.remove(scope);
+		if ( sym instanceof Scope ) {
+			forgetTree((Scope)sym);
+		}
+	}
+
+	@Override
+	public synchronized void symbolReplaced(Scope scope, Symbol old, Symbol sym) {
+		indexes.remove(scope);
+		if ( old instanceof Scope ) {
+			forgetTree((Scope)old);
+		}
+	}
+
+	@Override
+	public synchronized void scopeUnnested(Scope scope, Scope nested) {
+		forgetTree(nested);
+	}
+
+	/** Drop the indexes of root and the scopes within it. Rather than walk
+	 *  root's tree, which may have changed since or be an archive that
+	 *  walking would load, check which indexed scopes root encloses.
+	 */
+	protected void forgetTree(Scope root) {
+		for (Iterator<Scope> it = indexes.keySet().iterator(); it.hasNext(); ) {
+			if ( encloses(root, it.next()) ) {
+				it.remove();
+			}
+		}
+	}
+
+	protected static boolean encloses(Scope root, Scope scope) {
+		for (Scope s = scope; s!=null; s = s.getEnclosingScope()) {
+			if ( s==root ) return true;
+		}
+		return false;
+	}
+}
@@ -0,0 +1,128 @@
+package org.antlr.symtab;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** A global scope that many threads can define into and resolve from at
+ *  once, such as when defining the symbols of many compilation units in
+ *  parallel. Duplicate detection and insertion order numbering are atomic;
+ *  a symbol's number never changes once assigned unless you call
+ *  {@link #renumber}. Scopes nested within, such as classes and local
+ *  scopes, are still built single-threaded by whichever thread owns them.
+ *  Symbols can't be undefined or replaced; nested scopes can be unnested.
+ *
+ *  Listeners hear about defines on the defining threads, concurrently, so
+ *  they must be thread-safe; those in this package are.
+ */
+public class ConcurrentGlobalScope extends GlobalScope {
+	/** The scoped symbols as of the first numSymbols of our symbols */
+	protected static class ScopedSymbols {
+		protected final int numSymbols;
+		protected final Scope[] scopes; // shared with later snapshots, which only append
+		protected final int size;
+
+		protected ScopedSymbols(int numSymbols, Scope[] scopes, int size) {
+			this.numSymbols = numSymbols;
+			this.scopes = scopes;
+			this.size = size;
+		}
+	}
+
+	protected volatile ScopedSymbols scopedSnapshot = new ScopedSymbols(0, new Scope[0], 0);
+
+	public ConcurrentGlobalScope(Scope scope) {
+		super(scope);
+		symbols = new ConcurrentSymbolMap(this);
+		scopedSymbols = new ScopedSymbolList();
+		nestedScopesNotSymbols = new CopyOnWriteArrayList<>();
+	}
+
+	/** Scoped symbols in the order of our symbols, picked out of the
+	 *  symbol map's ordered slots rather than collected separately, so the
+	 *  two orders can't differ however defines interleave.
+	 */
+	protected ScopedSymbols getScopedSnapshot() {
+		ScopedSymbols snap = scopedSnapshot;
+		List<Symbol> syms = ((ConcurrentSymbolMap)symbols).values();
+		if ( snap.numSymbols==syms.size() ) return snap;
+		synchronized ( this ) {
+			snap = scopedSnapshot;
+			int n = syms.size();
+			Scope[] scopes = snap.scopes;
+			int size = snap.size;
+			for (int i = snap.numSymbols; i<n; i++) {
+				Symbol s = syms.get(i);
+				if ( s instanceof Scope ) {
+					if ( size==scopes.length ) {
+						scopes = Arrays.copyOf(scopes, Math.max(4, size*2));
+					}
+					scopes[size++] = (Scope)s;
+				}
+			}
+			snap = new ScopedSymbols(n, scopes, size);
+			scopedSnapshot = snap;
+			return snap;
+		}
+	}
+
+	protected class ScopedSymbolList extends AbstractList<Scope> implements RandomAccess {
+		@Override
+		public Scope get(int i) {
+			ScopedSymbols snap = getScopedSnapshot();
+			if ( i<0 || i>=snap.size ) {
+				throw new IndexOutOfBoundsException("Index: "+i+", Size: "+snap.size);
+			}
+			return snap.scopes[i];
+		}
+
+		@Override
+		public int size() { return getScopedSnapshot().size; }
+	}
+
+	@Override
+	public void define(Symbol sym) throws IllegalArgumentException {
+		checkNotFrozen();
+		if ( ((ConcurrentSymbolMap)symbols).putIfAbsent(sym.getName(), sym)!=null ) {
+			throw new IllegalArgumentException("duplicate symbol "+sym.getName());
+		}
+		if ( isObserved() ) {
+			fireEvent(l -> l.symbolDefined(this, sym));
+		}
+	}
+
+	@Override
+	public Symbol undefine(String name) {
+		throw new UnsupportedOperationException("can't undefine "+name+" in a concurrent scope");
+	}
+
+	@Override
+	public Symbol replace(Symbol sym) {
+		throw new UnsupportedOperationException("can't replace "+sym.getName()+" in a concurrent scope");
+	}
+
+	@Override
+	public List<Symbol> replaceUnit(Object unit, Collection<? extends Symbol> syms) {
+		throw new UnsupportedOperationException("can't replace unit "+unit+" in a concurrent scope");
+	}
+
+	/** Insertion order from parallel definition depends on thread timing.
+	 *  Once definition is done, call this to renumber the symbols in an
+	 *  order independent of it, say by compilation unit then name. Not safe
+	 *  to call while other threads define symbols.
+	 */
+	public void renumber(Comparator<? super Symbol> order) {
+		checkNotFrozen();
+		List<Symbol> syms = new ArrayList<>(getSymbols());
+		syms.sort(order);
+		((ConcurrentSymbolMap)symbols).reorder(syms);
+		synchronized ( this ) {
+			scopedSnapshot = new ScopedSymbols(0, new Scope[0], 0);
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package org.antlr.symtab;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** A {@link StringPool} like {@link StringTable} that many threads can add
+ *  to at once, such as compiler workers building a shared constant pool.
+ *  Each distinct string gets exactly one index and indexes stay dense from
+ *  0: the index is claimed atomically inside the map's per-key insertion.
+ *  Lookups of known strings and {@link #get(int)} never lock.
+ */
+public class ConcurrentStringTable implements StringPool {
+	protected final ConcurrentHashMap<String,Integer> indexes = new ConcurrentHashMap<>();
+	protected final AppendOnlyArray<String> ordered = new AppendOnlyArray<>();
+
+	@Override
+	public int add(String s) {
+		Integer I = indexes.get(s);
+		if ( I!=null ) return I;
+		return indexes.computeIfAbsent(s, ordered::add);
+	}
+
+	/** Get the ith string or null if out of range */
+	@Override
+	public String get(int i) {
+		return ordered.get(i);
+	}
+
+	@Override
+	public int size() { return ordered.size(); }
+
+	@Override
+	public String[] toArray() {
+		int n = ordered.size();
+		String[] a = new String[n];
+		for (int i = 0; i<n; i++) {
+			a[i] = ordered.get(i);
+		}
+		return a;
+	}
+
+	/** Return a snapshot, rather than a live list, of the strings */
+	@Override
+	public List<String> toList() {
+		return Arrays.asList(toArray());
+	}
+
+	@Override
+	public int getNumberOfStrings() {
+		return ordered.size();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder("{");
+		String[] strings = toArray();
+		for (int i = 0; i<strings.length; i++) {
+			if ( i>0 ) buf.append(", ");
+			buf.append(strings[i]).append('=').append(i);
+		}
+		return buf.append('}').toString();
+	}
+}
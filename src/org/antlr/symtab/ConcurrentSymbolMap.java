@@ -0,0 +1,114 @@
+package org.antlr.symtab;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** An insertion-ordered symbol map for scopes that many threads define
+ *  into at once; see {@link ConcurrentGlobalScope}. Symbols are only ever
+ *  added, via the atomic {@link #putIfAbsent}, which also sets the symbol's
+ *  scope and insertion order number before other threads can see it.
+ *  Replacing and removing entries is not supported.
+ */
+public class ConcurrentSymbolMap extends AbstractMap<String, Symbol> {
+	protected final Scope owner;
+	protected final ConcurrentHashMap<String, Symbol> index = new ConcurrentHashMap<>();
+	protected final AppendOnlyArray<Symbol> ordered = new AppendOnlyArray<>();
+	protected final List<Symbol> orderedView = ordered.asList();
+
+	protected Set<String> keyView;
+	protected Set<Map.Entry<String, Symbol>> entryView;
+
+	public ConcurrentSymbolMap(Scope owner) {
+		this.owner = owner;
+	}
+
+	/** Add value under key unless key is already taken, in which case
+	 *  return the existing symbol and leave value untouched. Otherwise set
+	 *  value's scope to our owner and its insertion order number to the
+	 *  next position and return null.
+	 */
+	@Override
+	public Symbol putIfAbsent(String key, Symbol value) {
+		Symbol s = index.computeIfAbsent(key, k -> {
+			int i = ordered.claim();
+			value.setScope(owner);
+			value.setInsertionOrderNumber(i);
+			ordered.set(i, value);
+			return value;
+		});
+		return s==value ? null : s;
+	}
+
+	/** Put symbols back in the order given, renumbering their insertion
+	 *  order. The list must be a permutation of our values. Not safe to
+	 *  call while other threads add symbols.
+	 */
+	public void reorder(List<? extends Symbol> syms) {
+		for (int i = 0; i<syms.size(); i++) {
+			Symbol s = syms.get(i);
+			s.setInsertionOrderNumber(i);
+			ordered.set(i, s);
+		}
+	}
+
+	@Override
+	public Symbol get(Object key) {
+		return key!=null ? index.get(key) : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key!=null && index.containsKey(key);
+	}
+
+	@Override
+	public int size() { return ordered.size(); }
+
+	/** A read-only list of the values in insertion order */
+	@Override
+	public List<Symbol> values() { return orderedView; }
+
+	/** A read-only set of the names in insertion order, like other scopes */
+	@Override
+	public Set<String> keySet() {
+		if ( keyView==null ) {
+			keyView = new AbstractSet<String>() {
+				@Override public int size() { return ordered.size(); }
+				@Override public boolean contains(Object o) { return containsKey(o); }
+				@Override public Iterator<String> iterator() {
+					Iterator<Symbol> it = orderedView.iterator();
+					return new Iterator<String>() {
+						@Override public boolean hasNext() { return it.hasNext(); }
+						@Override public String next() { return it.next().getName(); }
+					};
+				}
+			};
+		}
+		return keyView;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Symbol>> entrySet() {
+		if ( entryView==null ) {
+			entryView = new AbstractSet<Map.Entry<String, Symbol>>() {
+				@Override public int size() { return ordered.size(); }
+				@Override public Iterator<Map.Entry<String, Symbol>> iterator() {
+					Iterator<Symbol> it = orderedView.iterator();
+					return new Iterator<Map.Entry<String, Symbol>>() {
+						@Override public boolean hasNext() { return it.hasNext(); }
+						@Override public Map.Entry<String, Symbol> next() {
+							Symbol s = it.next();
+							return new SimpleImmutableEntry<>(s.getName(), s);
+						}
+					};
+				}
+			};
+		}
+		return entryView;
+	}
+}
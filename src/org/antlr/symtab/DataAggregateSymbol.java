@@ -3,6 +3,9 @@ package org.antlr.symtab;
 import org.antlr.v4.runtime.ParserRuleContext;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -14,7 +17,18 @@ import java.util.Map;
 public abstract class DataAggregateSymbol extends SymbolWithScope implements MemberSymbol, Type {
 	protected ParserRuleContext defNode;
 	protected int nextFreeFieldSlot = 0;  // next slot to allocate
-	protected int typeIndex;
+	protected int typeIndex = -1; // none until numbered, say by a TypeRegistry
+
+	/** All fields visible in this aggregate in layout order, computed once
+	 *  by {@link #seal()}. Null while the aggregate is still open.
+	 */
+	protected FieldSymbol[] fieldTable;
+	protected List<FieldSymbol> sealedFields; // read-only view of fieldTable
+
+	/** Fields defined here indexed by slot number, built on first use and
+	 *  when sealed; null when members change.
+	 */
+	protected FieldSymbol[] fieldsBySlot;
 
 	public DataAggregateSymbol(String name) {
 		super(name);
@@ -30,6 +44,10 @@ public abstract class DataAggregateSymbol extends SymbolWithScope implements Mem
 
 	@Override
 	public void define(Symbol sym) throws IllegalArgumentException {
+		if ( isSealed() ) {
+			throw new IllegalStateException("can't define "+sym.getName()+
+											" in sealed aggregate "+name);
+		}
 		if ( !(sym instanceof MemberSymbol) ) {
 			throw new IllegalArgumentException(
 				"sym is "+sym.getClass().getSimpleName()+" not MemberSymbol"
@@ -37,6 +55,64 @@ public abstract class DataAggregateSymbol extends SymbolWithScope implements Mem
 		}
 		super.define(sym);
 		setSlotNumber(sym);
+		fieldsBySlot = null;
+	}
+
+	@Override
+	public Symbol undefine(String name) {
+		checkNotSealed(name);
+		return super.undefine(name);
+	}
+
+	@Override
+	public Symbol replace(Symbol sym) throws IllegalArgumentException {
+		checkNotSealed(sym.getName());
+		checkMember(sym);
+		return super.replace(sym);
+	}
+
+	@Override
+	public List<Symbol> replaceUnit(Object unit, Collection<? extends Symbol> syms) {
+		checkNotSealed(String.valueOf(unit));
+		for (Symbol s : syms) {
+			checkMember(s);
+		}
+		return super.replaceUnit(unit, syms);
+	}
+
+	protected void checkNotSealed(String what) {
+		if ( isSealed() ) {
+			throw new IllegalStateException("can't change "+what+" in sealed aggregate "+name);
+		}
+	}
+
+	protected void checkMember(Symbol sym) {
+		if ( !(sym instanceof MemberSymbol) ) {
+			throw new IllegalArgumentException(
+				"sym is "+sym.getClass().getSimpleName()+" not MemberSymbol"
+			);
+		}
+	}
+
+	/** Members were removed or replaced; renumber what's left */
+	@Override
+	protected void symbolsChanged(Collection<Symbol> removed) {
+		super.symbolsChanged(removed);
+		renumberSlots();
+	}
+
+	/** Give the fields slots 0..n-1 in definition order, as define() would
+	 *  have had they been defined in this order from the start.
+	 */
+	public void renumberSlots() {
+		checkNotSealed("slots");
+		nextFreeFieldSlot = 0;
+		fieldsBySlot = null;
+		for (MemberSymbol s : getSymbols()) {
+			if ( s instanceof FieldSymbol ) {
+				setSlotNumber(s);
+			}
+		}
 	}
 
 	@Override
@@ -83,7 +159,10 @@ public abstract class DataAggregateSymbol extends SymbolWithScope implements Mem
 	}
 
 	/** Get the total number of fields visible to this class */
-	public int getNumberOfFields() { return getNumberOfDefinedFields(); }
+	public int getNumberOfFields() {
+		if ( isSealed() ) return fieldTable.length;
+		return getNumberOfDefinedFields();
+	}
 
 	/** Return the list of fields in this specific aggregate */
 	public List<? extends FieldSymbol> getDefinedFields() {
@@ -96,7 +175,73 @@ public abstract class DataAggregateSymbol extends SymbolWithScope implements Mem
 		return fields;
 	}
 
-	public List<? extends FieldSymbol> getFields() { return getDefinedFields(); }
+	public List<? extends FieldSymbol> getFields() {
+		if ( isSealed() ) return sealedFields;
+		return getDefinedFields();
+	}
+
+	/** Return the ith field in layout order, as given by {@link #getFields()},
+	 *  or null if out of range. This is a simple array read once sealed.
+	 */
+	public FieldSymbol getField(int i) {
+		if ( isSealed() ) {
+			return i>=0 && i<fieldTable.length ? fieldTable[i] : null;
+		}
+		List<? extends FieldSymbol> fields = getFields();
+		return i>=0 && i<fields.size() ? fields.get(i) : null;
+	}
+
+	/** Return the field defined in this aggregate with this slot number,
+	 *  {@link FieldSymbol#getSlotNumber()}, or null if none. Slots number
+	 *  the fields of each aggregate from 0, so inherited fields are found
+	 *  in the aggregate defining them. This is an array read except the
+	 *  first time after members change.
+	 */
+	public FieldSymbol getFieldBySlot(int slot) {
+		FieldSymbol[] bySlot = fieldsBySlot;
+		if ( bySlot==null ) {
+			bySlot = indexFieldsBySlot();
+			fieldsBySlot = bySlot;
+		}
+		return slot>=0 && slot<bySlot.length ? bySlot[slot] : null;
+	}
+
+	protected FieldSymbol[] indexFieldsBySlot() {
+		List<? extends FieldSymbol> fields = getDefinedFields();
+		int n = 0;
+		for (FieldSymbol f : fields) {
+			n = Math.max(n, f.getSlotNumber()+1);
+		}
+		FieldSymbol[] bySlot = new FieldSymbol[n];
+		for (FieldSymbol f : fields) {
+			if ( f.getSlotNumber()>=0 ) {
+				bySlot[f.getSlotNumber()] = f;
+			}
+		}
+		return bySlot;
+	}
+
+	/** Declare this aggregate complete. The field layout is computed once
+	 *  and later calls to {@link #getFields()}, {@link #getField(int)} and
+	 *  {@link #getNumberOfFields()} just read it. Defining new members in
+	 *  a sealed aggregate throws IllegalStateException.
+	 */
+	public void seal() {
+		if ( isSealed() ) return;
+		List<? extends FieldSymbol> fields = getFields();
+		fieldsBySlot = indexFieldsBySlot(); // before sealing so sealed readers never write
+		fieldTable = fields.toArray(new FieldSymbol[fields.size()]);
+		sealedFields = Collections.unmodifiableList(Arrays.asList(fieldTable));
+	}
+
+	public boolean isSealed() { return fieldTable!=null; }
+
+	/** A frozen aggregate is also sealed */
+	@Override
+	public void freeze() {
+		seal();
+		super.freeze();
+	}
 
 	public void setSlotNumber(Symbol sym) {
 		if ( sym instanceof FieldSymbol) {
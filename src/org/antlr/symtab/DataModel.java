@@ -0,0 +1,89 @@
+package org.antlr.symtab;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Sizes and alignments, in bytes, of pointers and primitive types on a
+ *  target, such as the LP64 model of 64-bit Unix or ILP32 of 32-bit
+ *  targets. Primitive types are known by name; add your language's with
+ *  {@link #setPrimitive}. Used by {@link LayoutEngine}.
+ */
+public class DataModel {
+	protected final String name;
+	protected final int pointerSize;
+	protected final int pointerAlignment;
+	protected final Map<String, int[]> primitives = new HashMap<>(); // name -> {size, alignment}
+
+	public DataModel(String name, int pointerSize, int pointerAlignment) {
+		checkSizeAndAlignment(pointerSize, pointerAlignment, "pointers");
+		this.name = name;
+		this.pointerSize = pointerSize;
+		this.pointerAlignment = pointerAlignment;
+	}
+
+	/** 64-bit Unix: int 4 bytes, long and pointers 8 */
+	public static DataModel lp64() {
+		DataModel m = new DataModel("LP64", 8, 8);
+		m.setCommonPrimitives();
+		m.setPrimitive("long", 8, 8);
+		return m;
+	}
+
+	/** 32-bit targets: int, long and pointers 4 bytes */
+	public static DataModel ilp32() {
+		DataModel m = new DataModel("ILP32", 4, 4);
+		m.setCommonPrimitives();
+		m.setPrimitive("long", 4, 4);
+		return m;
+	}
+
+	protected void setCommonPrimitives() {
+		setPrimitive("boolean", 1, 1);
+		setPrimitive("bool", 1, 1);
+		setPrimitive("byte", 1, 1);
+		setPrimitive("char", 1, 1);
+		setPrimitive("short", 2, 2);
+		setPrimitive("int", 4, 4);
+		setPrimitive("float", 4, 4);
+		setPrimitive("double", 8, 8);
+		setPrimitive("long long", 8, 8);
+	}
+
+	/** Define or redefine the size and alignment of a primitive type */
+	public void setPrimitive(String name, int size, int alignment) {
+		checkSizeAndAlignment(size, alignment, name);
+		primitives.put(name, new int[] {size, alignment});
+	}
+
+	/** Sizes can't be negative and alignments must be powers of 2 */
+	protected static void checkSizeAndAlignment(int size, int alignment, String what) {
+		if ( size<0 || alignment<=0 || Integer.bitCount(alignment)!=1 ) {
+			throw new IllegalArgumentException("bad size "+size+" or alignment "+alignment+" for "+what);
+		}
+	}
+
+	public int getSize(PrimitiveType t) {
+		return lookup(t)[0];
+	}
+
+	public int getAlignment(PrimitiveType t) {
+		return lookup(t)[1];
+	}
+
+	protected int[] lookup(PrimitiveType t) {
+		int[] sa = primitives.get(t.getName());
+		if ( sa==null ) {
+			throw new IllegalArgumentException(name+" has no size for primitive type "+t.getName());
+		}
+		return sa;
+	}
+
+	public int getPointerSize() { return pointerSize; }
+
+	public int getPointerAlignment() { return pointerAlignment; }
+
+	public String getName() { return name; }
+
+	@Override
+	public String toString() { return name; }
+}
@@ -0,0 +1,268 @@
+package org.antlr.symtab;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/** Records which symbol each name lookup of a consumer, such as the type
+ *  checker's result for one method body, resolved to, misses included.
+ *  Listening to the scope tree, it works out which consumers a change
+ *  affects so only those need recomputing:
+ *
+ *  <ul>
+ *  <li>a define that shadows what a lookup found, or supplies what it
+ *  missed, in a scope the lookup searched before where it stopped</li>
+ *  <li>undefining or replacing a symbol a lookup found, or a scope it
+ *  searched, such as a class whose members it walked</li>
+ *  <li>defining a class a lookup's superclass chain named but couldn't
+ *  resolve</li>
+ *  <li>a superclass change of a class a lookup searched</li>
+ *  <li>unnesting a scope a lookup searched</li>
+ *  </ul>
+ *
+ *  Look names up through {@link #resolve} or {@link #resolveAll}, or
+ *  report them with {@link #record}, and add this recorder as a listener,
+ *  for example with {@link SymbolTable#addListener}. Affected consumers
+ *  are handed to the callback, if any, and collected for
+ *  {@link #takeInvalidated()}; their dependencies are dropped, to be
+ *  recorded again when they recompute.
+ *
+ *  Methods are synchronized so units can be defined in parallel, as in a
+ *  {@link ConcurrentGlobalScope}; the callback runs holding the lock. A
+ *  lookup racing a define that affects it may be recorded after the
+ *  define's event, so record lookups once the scopes they search are done.
+ */
+public class DependencyRecorder implements ScopeListener {
+	/** One lookup: name resolved from scope to result, searching path in
+	 *  order until found.
+	 */
+	protected static class Dependency {
+		public final Object consumer;
+		public final String name;
+		public final Symbol result;
+		public final Scope[] path;
+		public final int foundAt; // index in path of result's scope or path.length
+		public final List<String> missingSuperClasses;
+		protected boolean dead;
+
+		public Dependency(Object consumer, String name, Symbol result,
+		                  Scope[] path, int foundAt, List<String> missingSuperClasses)
+		{
+			this.consumer = consumer;
+			this.name = name;
+			this.result = result;
+			this.path = path;
+			this.foundAt = foundAt;
+			this.missingSuperClasses = missingSuperClasses;
+		}
+
+		protected int indexOf(Scope scope) {
+			for (int i = 0; i<path.length; i++) {
+				if ( path[i]==scope ) return i;
+			}
+			return -1;
+		}
+	}
+
+	protected final Map<String, Set<Dependency>> byName = new HashMap<>();
+	protected final Map<Scope, Set<Dependency>> byScope = new IdentityHashMap<>();
+	protected final Map<String, Set<Dependency>> byMissingSuperClass = new HashMap<>();
+	protected final Map<Object, Set<Dependency>> byConsumer = new IdentityHashMap<>();
+
+	protected final Set<Object> invalidated = Collections.newSetFromMap(new IdentityHashMap<>());
+	protected final Consumer<Object> onInvalidate;
+
+	public DependencyRecorder() { this(null); }
+
+	/** onInvalidate is called once per affected consumer, if not null */
+	public DependencyRecorder(Consumer<Object> onInvalidate) {
+		this.onInvalidate = onInvalidate;
+	}
+
+	/** Resolve name from scope on behalf of consumer and record it */
+	public Symbol resolve(Object consumer, Scope scope, String name) {
+		Symbol result = scope.resolve(name);
+		record(consumer, scope, name, result);
+		return result;
+	}
+
+	/** Resolve names from scope on behalf of consumer, as
+	 *  {@link Scope#resolveAll} does, and record each lookup.
+	 */
+	public int resolveAll(Object consumer, Scope scope, String[] names, Symbol[] out) {
+		int found = scope.resolveAll(names, out);
+		for (int i = 0; i<names.length; i++) {
+			record(consumer, scope, names[i], out[i]);
+		}
+		return found;
+	}
+
+	/** Record that consumer resolved name from scope to result, or to
+	 *  nothing if result is null.
+	 */
+	public synchronized void record(Object consumer, Scope scope, String name, Symbol result) {
+		List<Scope> path = new ArrayList<>();
+		List<String> missing = Collections.emptyList();
+		for (Scope s = scope; s!=null; s = s.getEnclosingScope()) {
+			path.add(s);
+			if ( s instanceof ClassSymbol ) { // resolve() searches superclasses before going out
+				ClassSymbol c = (ClassSymbol)s;
+				while ( c.getSuperClassName()!=null ) {
+					ClassSymbol sup = c.getSuperClassScope();
+					if ( sup==null ) {
+						if ( missing.isEmpty() ) {
+							missing = new ArrayList<>(1);
+						}
+						missing.add(c.getSuperClassName());
+						break;
+					}
+					if ( path.contains(sup) ) break; // cyclic hierarchy
+					path.add(sup);
+					c = sup;
+				}
+			}
+		}
+		Scope[] p = path.toArray(new Scope[path.size()]);
+		int foundAt = p.length;
+		if ( result!=null ) {
+			for (int i = 0; i<p.length; i++) {
+				if ( p[i]==result.getScope() ) {
+					foundAt = i;
+					break;
+				}
+			}
+		}
+		Dependency d = new Dependency(consumer, name, result, p, foundAt, missing);
+		index(byName, name, d);
+		for (Scope s : p) {
+			index(byScope, s, d);
+		}
+		for (String sup : missing) {
+			index(byMissingSuperClass, sup, d);
+		}
+		index(byConsumer, consumer, d);
+	}
+
+	protected static <K> void index(Map<K, Set<Dependency>> m, K key, Dependency d) {
+		m.computeIfAbsent(key, k -> new LinkedHashSet<>(4)).add(d);
+	}
+
+	protected static <K> void unindex(Map<K, Set<Dependency>> m, K key, Dependency d) {
+		Set<Dependency> deps = m.get(key);
+		if ( deps!=null && deps.remove(d) && deps.isEmpty() ) {
+			m.remove(key);
+		}
+	}
+
+	/** Drop what consumer recorded, say before it recomputes */
+	public synchronized void forget(Object consumer) {
+		Set<Dependency> deps = byConsumer.remove(consumer);
+		if ( deps!=null ) {
+			for (Dependency d : deps) {
+				d.dead = true; // skip it if a loop over a copy still holds it
+				unindex(byName, d.name, d);
+				for (Scope s : d.path) {
+					unindex(byScope, s, d);
+				}
+				for (String sup : d.missingSuperClasses) {
+					unindex(byMissingSuperClass, sup, d);
+				}
+			}
+		}
+	}
+
+	/** Return the consumers affected since the last call, and clear them */
+	public synchronized Set<Object> takeInvalidated() {
+		Set<Object> result = new LinkedHashSet<>(invalidated);
+		invalidated.clear();
+		return result;
+	}
+
+	/** Number of consumers with recorded lookups */
+	public synchronized int getNumberOfConsumers() { return byConsumer.size(); }
+
+	public synchronized void clear() {
+		byName.clear();
+		byScope.clear();
+		byMissingSuperClass.clear();
+		byConsumer.clear();
+		invalidated.clear();
+	}
+
+	protected void invalidate(Dependency d) {
+		if ( d.dead ) return;
+		forget(d.consumer);
+		invalidated.add(d.consumer);
+		if ( onInvalidate!=null ) {
+			onInvalidate.accept(d.consumer);
+		}
+	}
+
+	/** Return a copy of the dependencies indexed under key in m, since
+	 *  invalidating changes the index.
+	 */
+	protected static <K> List<Dependency> live(Map<K, Set<Dependency>> m, K key) {
+		Set<Dependency> deps = m.get(key);
+		if ( deps==null ) return Collections.emptyList();
+		return new ArrayList<>(deps);
+	}
+
+	@Override
+	public synchronized void symbolDefined(Scope scope, Symbol sym) {
+		for (Dependency d : live(byName, sym.getName())) {
+			int i = d.indexOf(scope);
+			if ( i>=0 && i<d.foundAt ) { // searched scope before finding name, if at all
+				invalidate(d);
+			}
+		}
+		if ( sym instanceof ClassSymbol ) {
+			for (Dependency d : live(byMissingSuperClass, sym.getName())) {
+				invalidate(d);
+			}
+		}
+	}
+
+	@Override
+	public synchronized void symbolRemoved(Scope scope, Symbol sym) {
+		for (Dependency d : live(byName, sym.getName())) {
+			if ( d.result==sym ) {
+				invalidate(d);
+			}
+		}
+		if ( sym instanceof Scope ) {
+			scopeGone((Scope)sym);
+		}
+	}
+
+	@Override
+	public synchronized void symbolReplaced(Scope scope, Symbol old, Symbol sym) {
+		symbolRemoved(scope, old);
+		symbolDefined(scope, sym);
+	}
+
+	@Override
+	public synchronized void scopeUnnested(Scope scope, Scope nested) {
+		scopeGone(nested);
+	}
+
+	@Override
+	public synchronized void superClassChanged(ClassSymbol c, String oldSuperClassName) {
+		for (Dependency d : live(byScope, c)) {
+			invalidate(d);
+		}
+	}
+
+	/** Lookups that searched scope, or went through it to find something */
+	protected void scopeGone(Scope scope) {
+		for (Dependency d : live(byScope, scope)) {
+			invalidate(d);
+		}
+		byScope.remove(scope);
+	}
+}
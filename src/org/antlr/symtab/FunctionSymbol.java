@@ -9,6 +9,7 @@ import org.antlr.v4.runtime.ParserRuleContext;
 public class FunctionSymbol extends SymbolWithScope implements TypedSymbol {
 	protected ParserRuleContext defNode;
 	protected Type retType;
+	protected int frameSize = -1; // -1 until assignLocalSlots()
 
 	public FunctionSymbol(String name) {
 		super(name);
@@ -35,11 +36,113 @@ public class FunctionSymbol extends SymbolWithScope implements TypedSymbol {
 	/** Return the number of VariableSymbols specifically defined in the scope.
 	 *  This is useful as either the number of parameters or the number of
 	 *  parameters and locals depending on how you build the scope tree.
+	 *  Variables in nested local scopes are not counted; see
+	 *  {@link #getFrameSize()}.
 	 */
 	public int getNumberOfVariables() {
 		return Utils.filter(symbols.values(), s -> s instanceof VariableSymbol).size();
 	}
 
+	/** Number every parameter and local variable of this function with a
+	 *  dense frame slot from 0, across the local scopes nested within it.
+	 *  Symbols get slots in definition order, so parameters defined first
+	 *  come first. Sibling local scopes can't be live at once so they share
+	 *  slots; a nested scope's variables start after those of the scopes
+	 *  enclosing it. Nested functions and classes are skipped; they get
+	 *  their own frames. Slots are assigned when the function is frozen
+	 *  if not before.
+	 *
+	 *  Once slots are assigned, variables defined later get the next free
+	 *  slot and removed ones leave their slot unused, so addresses already
+	 *  handed out stay valid. Calling this again packs the frame but
+	 *  renumbers the slots, invalidating earlier {@link LocalAddress}es.
+	 *
+	 *  Return the frame size, the number of slots needed.
+	 */
+	public int assignLocalSlots() {
+		frameSize = assignLocalSlots(this, 0);
+		return frameSize;
+	}
+
+	protected static int assignLocalSlots(Scope scope, int next) {
+		for (Symbol s : scope.getSymbols()) {
+			if ( s instanceof VariableSymbol ) {
+				((VariableSymbol)s).localSlot = next++;
+			}
+		}
+		int size = next;
+		for (Scope nested : scope.getNestedScopes()) {
+			if ( !(nested instanceof Symbol) ) {
+				size = Math.max(size, assignLocalSlots(nested, next));
+			}
+		}
+		return size;
+	}
+
+	/** Return the number of frame slots for parameters and locals in this
+	 *  function and all of its local scopes, assigning slots if not done.
+	 */
+	public int getFrameSize() {
+		if ( frameSize<0 && !frozen ) {
+			assignLocalSlots();
+		}
+		return frameSize;
+	}
+
+	/** Give variables in scope, and the local scopes nested within it, that
+	 *  have no slot the next free slots, if this function's slots are
+	 *  assigned; for after definitions. Existing slots don't move.
+	 */
+	protected void addLocalSlots(Scope scope) {
+		if ( frameSize<0 ) return;
+		for (Symbol s : scope.getSymbols()) {
+			if ( s instanceof VariableSymbol ) {
+				addLocalSlot((VariableSymbol)s);
+			}
+		}
+		for (Scope nested : scope.getNestedScopes()) {
+			if ( !(nested instanceof Symbol) ) {
+				addLocalSlots(nested);
+			}
+		}
+	}
+
+	/** Give v the next free slot if it has none and slots are assigned */
+	protected void addLocalSlot(VariableSymbol v) {
+		if ( frameSize>=0 && v.localSlot<0 ) {
+			v.localSlot = frameSize++;
+		}
+	}
+
+	/** Assign slots, if not done, before freezing so readers of the frozen
+	 *  function never write them.
+	 */
+	@Override
+	public void freeze() {
+		if ( frozen ) return;
+		if ( frameSize<0 ) {
+			assignLocalSlots();
+		}
+		super.freeze();
+	}
+
+	/** Return the function whose frame holds variables defined in scope:
+	 *  scope itself if a function, else the function that the chain of
+	 *  local scopes enclosing scope leads to. Null if there is none, e.g.,
+	 *  for a class scope.
+	 */
+	public static FunctionSymbol getFrameOwner(Scope scope) {
+		for (Scope s = scope; s!=null; s = s.getEnclosingScope()) {
+			if ( s instanceof FunctionSymbol ) {
+				return (FunctionSymbol)s;
+			}
+			if ( s instanceof Symbol ) {
+				return null; // e.g., a field of a class
+			}
+		}
+		return null;
+	}
+
 	public int getNumberOfParameters() {
 		return Utils.filter(symbols.values(), s -> s instanceof ParameterSymbol).size();
 	}
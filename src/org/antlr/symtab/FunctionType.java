@@ -4,14 +4,27 @@ import java.util.List;
 
 /** For C types like "void (*)(int)", we need that to be a pointer to a function
  *  taking a single integer argument returning void.
+ *
+ *  Function types are equal if their return and argument types are the
+ *  same types; get a canonical instance from a {@link TypeFactory} to
+ *  compare them with ==. Don't change the argument list once created.
  */
 public class FunctionType implements Type {
 	protected final Type returnType;
 	protected final List<Type> argumentTypes;
+	protected final int hash;
+	protected int typeIndex = -1; // set by TypeFactory
 
 	public FunctionType(Type returnType, List<Type> argumentTypes) {
 		this.returnType = returnType;
 		this.argumentTypes = argumentTypes;
+		int h = TypeFactory.hashType(returnType);
+		if ( argumentTypes!=null ) {
+			for (Type t : argumentTypes) {
+				h = h*31 + TypeFactory.hashType(t);
+			}
+		}
+		this.hash = h;
 	}
 
 	@Override
@@ -20,12 +33,38 @@ public class FunctionType implements Type {
 	}
 
 	@Override
-	public int getTypeIndex() { return -1; }
+	public int getTypeIndex() { return typeIndex; }
+
+	public Type getReturnType() {
+		return returnType;
+	}
 
 	public List<Type> getArgumentTypes() {
 		return argumentTypes;
 	}
 
+	@Override
+	public boolean equals(Object obj) {
+		if ( obj==this ) return true;
+		if ( !(obj instanceof FunctionType) ) return false;
+		FunctionType other = (FunctionType)obj;
+		if ( hash!=other.hash || !TypeFactory.sameType(returnType, other.returnType) ) {
+			return false;
+		}
+		int n = argumentTypes!=null ? argumentTypes.size() : 0;
+		int m = other.argumentTypes!=null ? other.argumentTypes.size() : 0;
+		if ( n!=m ) return false;
+		for (int i = 0; i<n; i++) {
+			if ( !TypeFactory.sameType(argumentTypes.get(i), other.argumentTypes.get(i)) ) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() { return hash; }
+
 	@Override
 	public String toString() {
 		return "*"+ returnType;
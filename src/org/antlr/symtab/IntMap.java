@@ -0,0 +1,158 @@
+package org.antlr.symtab;
+
+import java.util.Arrays;
+
+/** A map from int to non-null values that doesn't box keys, for lookups
+ *  by slot number or type index. Keys and values live in parallel
+ *  open-addressing arrays probed linearly, so {@link #get(int)} touches a
+ *  couple of array elements and allocates nothing. A null value marks an
+ *  empty slot, hence null values are not allowed.
+ *
+ *  Not thread-safe; callers synchronize or publish a map that no longer
+ *  changes.
+ */
+public class IntMap<V> {
+	protected static final int[] NO_KEYS = new int[0];
+	protected static final Object[] NO_VALUES = new Object[0];
+
+	protected int[] keys = NO_KEYS;
+	protected Object[] values = NO_VALUES; // values[i] is mapped by keys[i]; null if empty
+	protected int size;
+
+	public IntMap() { }
+
+	public IntMap(int expectedSize) {
+		if ( expectedSize>0 ) {
+			allocate(capacityFor(expectedSize));
+		}
+	}
+
+	public int size() { return size; }
+
+	public boolean isEmpty() { return size==0; }
+
+	/** Get the value for key or null if none */
+	@SuppressWarnings("unchecked")
+	public V get(int key) {
+		int i = slotOf(key);
+		return i>=0 ? (V)values[i] : null;
+	}
+
+	public boolean containsKey(int key) {
+		return slotOf(key)>=0;
+	}
+
+	/** Map key to value; return the value it replaced or null */
+	@SuppressWarnings("unchecked")
+	public V put(int key, V value) {
+		if ( value==null ) {
+			throw new IllegalArgumentException("null value for key "+key);
+		}
+		if ( (size+1)*2>values.length ) {
+			allocate(capacityFor(size+1));
+		}
+		int mask = values.length-1;
+		int i = spread(key) & mask;
+		while ( values[i]!=null ) {
+			if ( keys[i]==key ) {
+				V old = (V)values[i];
+				values[i] = value;
+				return old;
+			}
+			i = (i+1) & mask;
+		}
+		keys[i] = key;
+		values[i] = value;
+		size++;
+		return null;
+	}
+
+	/** Remove key; return the value it mapped to or null */
+	@SuppressWarnings("unchecked")
+	public V remove(int key) {
+		int i = slotOf(key);
+		if ( i<0 ) return null;
+		V old = (V)values[i];
+		values[i] = null;
+		size--;
+		// shift later entries of the probe run back so lookups still find them
+		int mask = values.length-1;
+		for (int j = (i+1) & mask; values[j]!=null; j = (j+1) & mask) {
+			int home = spread(keys[j]) & mask;
+			if ( ((j-home) & mask)>=((j-i) & mask) ) { // j's home is at or before hole i
+				keys[i] = keys[j];
+				values[i] = values[j];
+				values[j] = null;
+				i = j;
+			}
+		}
+		return old;
+	}
+
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/** Return the keys in no particular order */
+	public int[] keys() {
+		int[] result = new int[size];
+		int n = 0;
+		for (int i = 0; i<values.length; i++) {
+			if ( values[i]!=null ) {
+				result[n++] = keys[i];
+			}
+		}
+		return result;
+	}
+
+	protected int slotOf(int key) {
+		if ( size==0 ) return -1;
+		int mask = values.length-1;
+		for (int i = spread(key) & mask; values[i]!=null; i = (i+1) & mask) {
+			if ( keys[i]==key ) return i;
+		}
+		return -1;
+	}
+
+	/** Rehash into tables of n slots, n a power of 2 */
+	protected void allocate(int n) {
+		int[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new int[n];
+		values = new Object[n];
+		int mask = n-1;
+		for (int j = 0; j<oldValues.length; j++) {
+			if ( oldValues[j]!=null ) {
+				int i = spread(oldKeys[j]) & mask;
+				while ( values[i]!=null ) {
+					i = (i+1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				values[i] = oldValues[j];
+			}
+		}
+	}
+
+	/** Smallest power of 2 at least 8 and twice n, keeping the load at most 1/2 */
+	protected static int capacityFor(int n) {
+		return Math.max(8, Integer.highestOneBit(Math.max(1, n*2-1))<<1);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder("{");
+		for (int i = 0; i<values.length; i++) {
+			if ( values[i]!=null ) {
+				if ( buf.length()>1 ) buf.append(", ");
+				buf.append(keys[i]).append('=').append(values[i]);
+			}
+		}
+		return buf.append('}').toString();
+	}
+
+	protected static int spread(int h) {
+		h *= 0x9E3779B9; // golden ratio; dense keys otherwise fill runs of slots
+		return h ^ (h>>>16);
+	}
+}
@@ -0,0 +1,71 @@
+package org.antlr.symtab;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Memory layout of a struct or class under some {@link DataModel}: its
+ *  size and alignment and the byte offset of every field, inherited ones
+ *  included. Computed by a {@link LayoutEngine}; immutable.
+ */
+public class Layout {
+	protected final DataAggregateSymbol aggregate;
+	protected final int size;
+	protected final int alignment;
+	protected final FieldSymbol[] fields; // in memory order
+	protected final int[] offsets; // offsets[i] is where fields[i] starts
+	protected final int padding;
+	protected final Map<FieldSymbol, Integer> offsetOf = new IdentityHashMap<>();
+
+	public Layout(DataAggregateSymbol aggregate, int size, int alignment,
+				  FieldSymbol[] fields, int[] offsets, int padding)
+	{
+		this.aggregate = aggregate;
+		this.size = size;
+		this.alignment = alignment;
+		this.fields = fields;
+		this.offsets = offsets;
+		this.padding = padding;
+		for (int i = 0; i<fields.length; i++) {
+			offsetOf.put(fields[i], offsets[i]);
+		}
+	}
+
+	public DataAggregateSymbol getAggregate() { return aggregate; }
+
+	/** Size in bytes, a multiple of the alignment so arrays of it pack */
+	public int getSize() { return size; }
+
+	public int getAlignment() { return alignment; }
+
+	/** Fields in memory order, which is declaration order, superclass
+	 *  fields first, unless the engine reorders fields.
+	 */
+	public List<FieldSymbol> getFields() {
+		return Collections.unmodifiableList(Arrays.asList(fields));
+	}
+
+	/** Byte offset of field f or -1 if f isn't part of this layout */
+	public int getOffset(FieldSymbol f) {
+		Integer offset = offsetOf.get(f);
+		return offset!=null ? offset : -1;
+	}
+
+	/** Byte offset of the i-th field in memory order */
+	public int getOffset(int i) { return offsets[i]; }
+
+	/** Bytes lost to padding between fields and at the end */
+	public int getPadding() { return padding; }
+
+	@Override
+	public String toString() {
+		StringBuilder buf = new StringBuilder();
+		buf.append(aggregate.getName()).append(" size=").append(size).append(" align=").append(alignment);
+		for (int i = 0; i<fields.length; i++) {
+			buf.append(' ').append(fields[i].getName()).append('@').append(offsets[i]);
+		}
+		return buf.toString();
+	}
+}
@@ -0,0 +1,224 @@
+package org.antlr.symtab;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/** Lays out structs and classes in memory for a {@link DataModel}: each
+ *  field goes at the next offset that suits its alignment and the size is
+ *  rounded up to the largest alignment, as C compilers do. A class starts
+ *  with its superclass's layout. With reorderFields, an aggregate's own
+ *  fields are placed by decreasing alignment, which minimizes padding;
+ *  declaration order breaks ties.
+ *
+ *  Sizes come from the data model for primitive types; pointers, function
+ *  types, arrays of unspecified size and class types are references, one
+ *  pointer in size. Sized arrays and structs are stored inline. Aliases
+ *  stand for their target types.
+ *
+ *  Layouts are cached per aggregate. Added as a listener, say with
+ *  {@link SymbolTable#addListener}, the engine drops the layout of an
+ *  aggregate whose fields or superclass change, along with layouts that
+ *  embed or extend it. Call {@link #invalidate} after changing the type
+ *  of a field.
+ */
+public class LayoutEngine implements ScopeListener {
+	protected final DataModel model;
+	protected final boolean reorderFields;
+
+	protected final Map<DataAggregateSymbol, Layout> layouts = new IdentityHashMap<>();
+
+	/** Aggregates whose layouts embed or extend the key aggregate */
+	protected final Map<DataAggregateSymbol, Set<DataAggregateSymbol>> dependents = new IdentityHashMap<>();
+
+	/** Aggregates being laid out, innermost last; catches self-embedding */
+	protected final Deque<DataAggregateSymbol> inProgress = new ArrayDeque<>();
+
+	public LayoutEngine(DataModel model) { this(model, false); }
+
+	public LayoutEngine(DataModel model, boolean reorderFields) {
+		this.model = model;
+		this.reorderFields = reorderFields;
+	}
+
+	public synchronized Layout getLayout(DataAggregateSymbol d) {
+		DataAggregateSymbol user = inProgress.peekLast();
+		if ( user!=null ) {
+			dependents.computeIfAbsent(d, k -> Collections.newSetFromMap(new IdentityHashMap<>())).add(user);
+		}
+		Layout layout = layouts.get(d);
+		if ( layout==null ) {
+			layout = computeLayout(d);
+			layouts.put(d, layout);
+		}
+		return layout;
+	}
+
+	/** Size in bytes of a value of type t */
+	public synchronized int sizeOf(Type t) {
+		t = unalias(t);
+		if ( t instanceof PrimitiveType ) {
+			return model.getSize((PrimitiveType)t);
+		}
+		if ( t instanceof ArrayType && ((ArrayType)t).getNumElems()>=0 ) {
+			ArrayType a = (ArrayType)t;
+			long size = (long)sizeOf(a.getElemType())*a.getNumElems();
+			if ( size>Integer.MAX_VALUE ) {
+				throw new IllegalArgumentException("array type "+t.getName()+" is too big");
+			}
+			return (int)size;
+		}
+		if ( isReference(t) ) {
+			return model.getPointerSize();
+		}
+		return getLayout((DataAggregateSymbol)t).getSize();
+	}
+
+	/** Alignment in bytes of a value of type t */
+	public synchronized int alignmentOf(Type t) {
+		t = unalias(t);
+		if ( t instanceof PrimitiveType ) {
+			return model.getAlignment((PrimitiveType)t);
+		}
+		if ( t instanceof ArrayType && ((ArrayType)t).getNumElems()>=0 ) {
+			return alignmentOf(((ArrayType)t).getElemType());
+		}
+		if ( isReference(t) ) {
+			return model.getPointerAlignment();
+		}
+		return getLayout((DataAggregateSymbol)t).getAlignment();
+	}
+
+	/** Drop the layout of d and of everything that embeds or extends it */
+	public synchronized void invalidate(DataAggregateSymbol d) {
+		layouts.remove(d);
+		Set<DataAggregateSymbol> users = dependents.remove(d);
+		if ( users!=null ) {
+			for (DataAggregateSymbol u : users) {
+				invalidate(u);
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		layouts.clear();
+		dependents.clear();
+	}
+
+	public DataModel getDataModel() { return model; }
+
+	public boolean isReorderingFields() { return reorderFields; }
+
+	protected Layout computeLayout(DataAggregateSymbol d) {
+		if ( inProgress.contains(d) ) {
+			throw new IllegalArgumentException("aggregate "+d.getName()+" contains itself");
+		}
+		inProgress.addLast(d);
+		try {
+			List<FieldSymbol> fields = new ArrayList<>();
+			List<Integer> offsets = new ArrayList<>();
+			int offset = 0;
+			int alignment = 1;
+			int used = 0; // bytes taken by fields
+			if ( d instanceof ClassSymbol ) {
+				ClassSymbol sup = ((ClassSymbol)d).getSuperClassScope();
+				if ( sup!=null ) {
+					Layout base = getLayout(sup);
+					for (int i = 0; i<base.fields.length; i++) {
+						fields.add(base.fields[i]);
+						offsets.add(base.offsets[i]);
+					}
+					offset = base.size;
+					alignment = base.alignment;
+					used = base.size-base.padding;
+				}
+			}
+			List<FieldSymbol> own = new ArrayList<>(d.getDefinedFields());
+			if ( reorderFields ) {
+				own.sort((a, b) -> alignmentOf(b.getType())-alignmentOf(a.getType())); // stable
+			}
+			for (FieldSymbol f : own) {
+				Type t = f.getType();
+				if ( t==null ) {
+					throw new IllegalArgumentException("field "+d.getName()+"."+f.getName()+" has no type");
+				}
+				int a = alignmentOf(t);
+				int size = sizeOf(t);
+				offset = alignUp(offset, a);
+				fields.add(f);
+				offsets.add(offset);
+				offset += size;
+				used += size;
+				alignment = Math.max(alignment, a);
+			}
+			int size = alignUp(offset, alignment);
+			int[] offs = new int[offsets.size()];
+			for (int i = 0; i<offs.length; i++) {
+				offs[i] = offsets.get(i);
+			}
+			return new Layout(d, size, alignment, fields.toArray(new FieldSymbol[0]), offs, size-used);
+		}
+		finally {
+			inProgress.removeLast();
+		}
+	}
+
+	protected boolean isReference(Type t) {
+		if ( t==null ) {
+			throw new IllegalArgumentException("no type");
+		}
+		if ( t instanceof PointerType || t instanceof FunctionType ||
+			 t instanceof ArrayType || t instanceof ClassSymbol )
+		{
+			return true; // sized arrays were handled by the caller
+		}
+		if ( t instanceof DataAggregateSymbol ) {
+			return false;
+		}
+		throw new IllegalArgumentException("no size for type "+t.getName());
+	}
+
+	protected static Type unalias(Type t) {
+		Type u = TypeRegistry.unalias(t);
+		if ( u==null && t!=null ) {
+			throw new IllegalArgumentException("alias "+t.getName()+" has no type");
+		}
+		return u;
+	}
+
+	protected static int alignUp(int offset, int alignment) {
+		return (offset+alignment-1) & -alignment;
+	}
+
+	@Override
+	public synchronized void symbolDefined(Scope scope, Symbol sym) {
+		if ( scope instanceof DataAggregateSymbol && sym instanceof FieldSymbol ) {
+			invalidate((DataAggregateSymbol)scope);
+		}
+	}
+
+	@Override
+	public synchronized void symbolRemoved(Scope scope, Symbol sym) {
+		if ( scope instanceof DataAggregateSymbol ) {
+			invalidate((DataAggregateSymbol)scope);
+		}
+		if ( sym instanceof DataAggregateSymbol ) {
+			invalidate((DataAggregateSymbol)sym);
+		}
+	}
+
+	@Override
+	public synchronized void symbolReplaced(Scope scope, Symbol old, Symbol sym) {
+		symbolRemoved(scope, old);
+	}
+
+	@Override
+	public synchronized void superClassChanged(ClassSymbol c, String oldSuperClassName) {
+		invalidate(c);
+	}
+}
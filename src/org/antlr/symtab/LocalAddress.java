@@ -0,0 +1,32 @@
+package org.antlr.symtab;
+
+/** Where a symbol lives relative to the scope that refers to it: found
+ *  depth scopes up from the use site, frameDepth function frames out
+ *  (0 for the current function's frame) at local slot. An interpreter or
+ *  code generator can index frames with it rather than resolving the name
+ *  again at run time. slot is -1 for symbols that don't live in a function
+ *  frame, such as globals, fields, functions and types.
+ *
+ *  Addresses are computed by {@link BaseScope#resolveAddress}.
+ */
+public class LocalAddress {
+	public final int depth;
+	public final int frameDepth;
+	public final int slot;
+	public final Symbol symbol;
+
+	public LocalAddress(int depth, int frameDepth, int slot, Symbol symbol) {
+		this.depth = depth;
+		this.frameDepth = frameDepth;
+		this.slot = slot;
+		this.symbol = symbol;
+	}
+
+	/** True if symbol lives in a function frame */
+	public boolean isLocal() { return slot>=0; }
+
+	@Override
+	public String toString() {
+		return symbol.getName()+"@("+depth+","+slot+")";
+	}
+}
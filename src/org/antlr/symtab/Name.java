@@ -0,0 +1,41 @@
+package org.antlr.symtab;
+
+/** An interned identifier handed out by a {@link NameTable}. There is one
+ *  Name per distinct string in a table so names compare by reference. Each
+ *  knows its dense integer id and caches its hash, which is the same as the
+ *  hash of its text, so scopes can look it up without touching the string
+ *  unless the hashes collide.
+ *
+ *  Symbols created with {@link #getText()} share the table's String
+ *  instance and so even that final comparison is by reference.
+ */
+public class Name {
+	protected final String text;
+	protected final int id;
+	protected final int hash;
+
+	public Name(String text, int id) {
+		this.text = text;
+		this.id = id;
+		this.hash = text.hashCode();
+	}
+
+	public String getText() { return text; }
+
+	/** Index of this name in its table from 0 */
+	public int getId() { return id; }
+
+	@Override
+	public int hashCode() { return hash; }
+
+	@Override
+	public boolean equals(Object obj) {
+		if ( obj==this ) {
+			return true;
+		}
+		return obj instanceof Name && text.equals(((Name)obj).text);
+	}
+
+	@Override
+	public String toString() { return text; }
+}
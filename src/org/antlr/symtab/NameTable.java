@@ -0,0 +1,43 @@
+package org.antlr.symtab;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** A table of interned {@link Name}s built on a {@link StringPool}, by
+ *  default a {@link StringTable}. The id of a name is its string's index
+ *  in the pool so you can share a pool with, say, a constant pool.
+ */
+public class NameTable {
+	protected final StringPool strings;
+	protected final List<Name> names = new ArrayList<>(); // names.get(id) is null until interned
+
+	public NameTable() { this(new StringTable()); }
+
+	public NameTable(StringPool strings) { this.strings = strings; }
+
+	/** Return the unique Name for s, creating it if needed */
+	public Name intern(String s) {
+		int id = strings.add(s);
+		while ( names.size()<=id ) {
+			names.add(null);
+		}
+		Name name = names.get(id);
+		if ( name==null ) {
+			name = new Name(strings.get(id), id);
+			names.set(id, name);
+		}
+		return name;
+	}
+
+	/** Get the Name with this id or null if not interned */
+	public Name get(int id) {
+		if ( id>=0 && id<names.size() ) {
+			return names.get(id);
+		}
+		return null;
+	}
+
+	public StringPool getStringTable() { return strings; }
+
+	public int size() { return names.size(); }
+}
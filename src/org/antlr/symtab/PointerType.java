@@ -2,11 +2,18 @@ package org.antlr.symtab;
 
 /** An element in a type tree that represents a pointer to some type,
  *  such as we need for C.  "int *" would need a PointerType(intType) object.
+ *
+ *  Pointer types are equal if they point at the same type; get a canonical
+ *  instance from a {@link TypeFactory} to compare them with ==.
  */
 public class PointerType implements Type {
-	protected Type targetType;
+	protected final Type targetType;
+	protected final int hash;
+	protected int typeIndex = -1; // set by TypeFactory
+
 	public PointerType(Type targetType) {
 		this.targetType = targetType;
+		this.hash = TypeFactory.hashType(targetType)*31 + 1;
 	}
 
 	@Override
@@ -15,7 +22,20 @@ public class PointerType implements Type {
 	}
 
 	@Override
-	public int getTypeIndex() { return -1; }
+	public int getTypeIndex() { return typeIndex; }
+
+	public Type getTargetType() { return targetType; }
+
+	@Override
+	public boolean equals(Object obj) {
+		if ( obj==this ) return true;
+		if ( !(obj instanceof PointerType) ) return false;
+		PointerType other = (PointerType)obj;
+		return hash==other.hash && TypeFactory.sameType(targetType, other.targetType);
+	}
+
+	@Override
+	public int hashCode() { return hash; }
 
 	@Override
 	public String toString() {
@@ -1,7 +1,7 @@
 package org.antlr.symtab;
 
 public class PrimitiveType extends BaseSymbol implements Type {
-	protected int typeIndex;
+	protected int typeIndex = -1; // none until numbered, say by a TypeRegistry
 
 	public PrimitiveType(String name) {
 		super(name);
@@ -0,0 +1,245 @@
+package org.antlr.symtab;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.regex.Pattern;
+
+/** Finds any non-local symbol by qualified name, such as a.b.C.m, with one
+ *  hash lookup, and lists symbols by name range or prefix in sorted order.
+ *  Names are relative to the root scopes given, usually a table's global
+ *  and predefined scopes: a class C defined globally is "C", its method m
+ *  "C.m". Symbols inside local scopes such as method bodies aren't
+ *  indexed.
+ *
+ *  As a listener on the roots, the index follows define(), undefine(),
+ *  replace() and replaceUnit(). If two roots define the same name, the
+ *  symbol in the earlier root wins, as it would for resolve() when the
+ *  earlier root is nested in the later one. Moving a scope with
+ *  setEnclosingScope() is not tracked. Methods are synchronized so units
+ *  can be defined in parallel.
+ *
+ *  {@link ArchiveScope} roots are not walked up front, which would load
+ *  every entry. {@link #get} looks names up in them on demand; the first
+ *  query that lists names, such as {@link #getWithPrefix}, indexes them
+ *  in full.
+ */
+public class QualifiedNameIndex implements ScopeListener {
+	protected final Scope[] roots; // by precedence
+	protected final String separator;
+	protected final Map<String, Symbol> byName = new HashMap<>();
+	protected final TreeMap<String, Symbol> sorted = new TreeMap<>();
+	protected final List<Scope> unindexed = new ArrayList<>(); // archive roots not walked yet
+
+	/** Index what the roots define now; add the index as a listener to
+	 *  follow changes, or get one from
+	 *  {@link SymbolTable#getQualifiedNameIndex()}.
+	 */
+	public QualifiedNameIndex(String separator, Scope... roots) {
+		this.separator = separator;
+		this.roots = roots;
+		for (Scope root : roots) {
+			if ( root instanceof ArchiveScope ) {
+				unindexed.add(root);
+			}
+			else {
+				addAll(root);
+			}
+		}
+	}
+
+	/** Get the symbol with this qualified name or null */
+	public synchronized Symbol get(String qualifiedName) {
+		Symbol s = byName.get(qualifiedName);
+		if ( unindexed.isEmpty() ) return s;
+		int rank = s!=null ? rootRank(s) : roots.length;
+		String[] path = null;
+		for (int i = 0; i<rank; i++) { // archives that would win over s
+			if ( unindexed.contains(roots[i]) ) {
+				if ( path==null ) path = qualifiedName.split(Pattern.quote(separator));
+				Symbol a = find(roots[i], path);
+				if ( a!=null ) return a;
+			}
+		}
+		return s;
+	}
+
+	/** Symbols with names from fromName, inclusive, to toName, exclusive,
+	 *  sorted by name. Returns a copy.
+	 */
+	public synchronized SortedMap<String, Symbol> getRange(String fromName, String toName) {
+		indexArchives();
+		return new TreeMap<>(sorted.subMap(fromName, toName));
+	}
+
+	/** Symbols whose qualified names start with prefix, such as "a.b.Fo"
+	 *  for what a user has typed so far. Returns a copy.
+	 */
+	public synchronized SortedMap<String, Symbol> getWithPrefix(String prefix) {
+		indexArchives();
+		return new TreeMap<>(sorted.subMap(prefix, prefix+Character.MAX_VALUE));
+	}
+
+	/** Everything defined under qualifiedName at any depth, such as all
+	 *  classes, methods and fields under package or class "a.b".
+	 */
+	public SortedMap<String, Symbol> getMembers(String qualifiedName) {
+		return getWithPrefix(qualifiedName+separator);
+	}
+
+	/** Return the name sym is indexed under, or null if it isn't */
+	public synchronized String getQualifiedName(Symbol sym) {
+		Scope scope = sym.getScope();
+		String q = scope!=null ? qualifierOf(scope) : null;
+		if ( q==null ) return null;
+		String name = q.isEmpty() ? sym.getName() : q+separator+sym.getName();
+		return get(name)==sym ? name : null;
+	}
+
+	/** Read-only view of the whole index, sorted by name; don't use it
+	 *  while other threads define symbols.
+	 */
+	public SortedMap<String, Symbol> asSortedMap() {
+		synchronized ( this ) {
+			indexArchives();
+		}
+		return Collections.unmodifiableSortedMap(sorted);
+	}
+
+	public synchronized int size() {
+		indexArchives();
+		return byName.size();
+	}
+
+	public String getSeparator() { return separator; }
+
+	/** Qualifier of symbols defined in scope: "" in a root, null if scope
+	 *  is local or outside the roots.
+	 */
+	protected String qualifierOf(Scope scope) {
+		List<String> names = new ArrayList<>();
+		Scope s = scope;
+		while ( s instanceof Symbol && !isRoot(s) ) {
+			names.add(s.getName());
+			s = s.getEnclosingScope();
+		}
+		if ( s==null || !isRoot(s) ) return null;
+		StringBuilder buf = new StringBuilder();
+		for (int i = names.size()-1; i>=0; i--) {
+			buf.append(names.get(i));
+			if ( i>0 ) buf.append(separator);
+		}
+		return buf.toString();
+	}
+
+	protected boolean isRoot(Scope s) {
+		for (Scope root : roots) {
+			if ( root==s ) return true;
+		}
+		return false;
+	}
+
+	/** Rank of the root holding sym, lower winning, or roots.length if none */
+	protected int rootRank(Symbol sym) {
+		Scope s = sym.getScope();
+		while ( s!=null && !isRoot(s) ) {
+			s = s.getEnclosingScope();
+		}
+		for (int i = 0; i<roots.length; i++) {
+			if ( roots[i]==s ) return i;
+		}
+		return roots.length;
+	}
+
+	/** Index what root defines */
+	protected void addAll(Scope root) {
+		for (Symbol s : root.getSymbols()) {
+			add(s.getName(), s);
+		}
+	}
+
+	/** Index the archive roots we've put off; loads all their entries */
+	protected void indexArchives() {
+		for (Scope root : unindexed) {
+			addAll(root);
+		}
+		unindexed.clear();
+	}
+
+	/** Index sym as name and, if it's a scope, everything it defines */
+	protected void add(String name, Symbol sym) {
+		Symbol old = byName.get(name);
+		if ( old==null || old==sym || rootRank(sym)<rootRank(old) ) {
+			byName.put(name, sym);
+			sorted.put(name, sym);
+		}
+		if ( sym instanceof Scope ) {
+			for (Symbol s : ((Scope)sym).getSymbols()) {
+				add(name+separator+s.getName(), s);
+			}
+		}
+	}
+
+	/** Drop sym, indexed as name, and what it defines; fall back on a symbol
+	 *  of the same name in a later root, if any.
+	 */
+	protected void remove(String name, Symbol sym) {
+		if ( byName.get(name)==sym ) {
+			byName.remove(name);
+			sorted.remove(name);
+			Symbol other = find(name);
+			if ( other!=null ) {
+				add(name, other);
+			}
+		}
+		if ( sym instanceof Scope ) {
+			for (Symbol s : ((Scope)sym).getSymbols()) {
+				remove(name+separator+s.getName(), s);
+			}
+		}
+	}
+
+	/** Look name up segment by segment from each root in turn */
+	protected Symbol find(String name) {
+		String[] path = name.split(Pattern.quote(separator));
+		for (Scope root : roots) {
+			Symbol s = find(root, path);
+			if ( s!=null ) return s;
+		}
+		return null;
+	}
+
+	protected static Symbol find(Scope root, String[] path) {
+		Symbol s = root.getSymbol(path[0]);
+		for (int i = 1; i<path.length && s!=null; i++) {
+			s = s instanceof Scope ? ((Scope)s).getSymbol(path[i]) : null;
+		}
+		return s;
+	}
+
+	@Override
+	public synchronized void symbolDefined(Scope scope, Symbol sym) {
+		String q = qualifierOf(scope);
+		if ( q!=null ) {
+			add(q.isEmpty() ? sym.getName() : q+separator+sym.getName(), sym);
+		}
+	}
+
+	@Override
+	public synchronized void symbolRemoved(Scope scope, Symbol sym) {
+		String q = qualifierOf(scope);
+		if ( q!=null ) {
+			remove(q.isEmpty() ? sym.getName() : q+separator+sym.getName(), sym);
+		}
+	}
+
+	@Override
+	public synchronized void symbolReplaced(Scope scope, Symbol old, Symbol sym) {
+		symbolRemoved(scope, old);
+		symbolDefined(scope, sym);
+	}
+}
@@ -1,5 +1,8 @@
 package org.antlr.symtab;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -46,12 +49,48 @@ public interface Scope {
 	 */
 	void define(Symbol sym) throws IllegalArgumentException;
 
+	/** Define sym, whose name must have the text of name, in this scope.
+	 *  Same as {@link #define(Symbol)} but lets callers that work with
+	 *  interned names stay with them.
+	 */
+	default void define(Name name, Symbol sym) throws IllegalArgumentException {
+		if ( !name.getText().equals(sym.getName()) ) {
+			throw new IllegalArgumentException("symbol "+sym.getName()+" defined as "+name);
+		}
+		define(sym);
+	}
+
 	/** Look up name in this scope or recursively in parent scope if not here */
 	Symbol resolve(String name);
 
+	/** Look up an interned name in this scope or recursively in parent scope
+	 *  if not here. Implementations can use the name's cached hash instead of
+	 *  rehashing the identifier at each level.
+	 */
+	default Symbol resolve(Name name) { return resolve(name.getText()); }
+
+	/** Resolve each of names as {@link #resolve(String)} would, putting
+	 *  the symbol for names[i], or null, in out[i]. out must be at least as
+	 *  long as names. Return how many names were found.
+	 */
+	default int resolveAll(String[] names, Symbol[] out) {
+		if ( out.length<names.length ) {
+			throw new IllegalArgumentException("need "+names.length+" result slots; got "+out.length);
+		}
+		int found = 0;
+		for (int i = 0; i<names.length; i++) {
+			out[i] = resolve(names[i]);
+			if ( out[i]!=null ) found++;
+		}
+		return found;
+	}
+
 	/** Get symbol if name defined within this specific scope */
 	Symbol getSymbol(String name);
 
+	/** Get symbol if interned name defined within this specific scope */
+	default Symbol getSymbol(Name name) { return getSymbol(name.getText()); }
+
 	/** Add a nested local scope to this scope; it's like define() but
 	 *  for non SymbolWithScope objects. E.g., a FunctionSymbol will
 	 *  add a LocalScope for its block via this method.
@@ -60,11 +99,67 @@ public interface Scope {
 	 */
 	void nest(Scope scope) throws IllegalArgumentException;
 
+	/** Tell l about changes to this scope and scopes nested within it */
+	void addScopeListener(ScopeListener l);
+
+	void removeScopeListener(ScopeListener l);
+
+	/** Remove and return the symbol called name from this scope, or return
+	 *  null if not defined here. Symbols defined after it move up in
+	 *  insertion order.
+	 */
+	Symbol undefine(String name);
+
+	/** Replace the symbol with sym's name by sym, which takes over the old
+	 *  symbol's insertion order position. Return the old symbol.
+	 *
+	 *  @throws IllegalArgumentException if no symbol has sym's name.
+	 */
+	Symbol replace(Symbol sym) throws IllegalArgumentException;
+
+	/** Remove a scope added with {@link #nest}. Return false if it wasn't
+	 *  nested here.
+	 */
+	boolean unnest(Scope scope);
+
+	/** Swap out everything unit contributed to this scope in one
+	 *  operation: undefine every symbol whose {@link Symbol#getUnit()}
+	 *  equals unit then define syms, tagging each with unit. Symbols of
+	 *  other units keep their relative order. Return the symbols removed.
+	 *
+	 *  @throws IllegalArgumentException if a new symbol's name clashes with
+	 *  a symbol of another unit or another new symbol; nothing is changed.
+	 */
+	default List<Symbol> replaceUnit(Object unit, Collection<? extends Symbol> syms)
+		throws IllegalArgumentException
+	{
+		Set<String> names = new HashSet<>();
+		for (Symbol s : syms) {
+			Symbol existing = getSymbol(s.getName());
+			if ( !names.add(s.getName()) || existing!=null && !unit.equals(existing.getUnit()) ) {
+				throw new IllegalArgumentException("duplicate symbol "+s.getName());
+			}
+		}
+		List<Symbol> removed = new ArrayList<>();
+		for (Symbol s : new ArrayList<>(getSymbols())) {
+			if ( unit.equals(s.getUnit()) ) {
+				undefine(s.getName());
+				removed.add(s);
+			}
+		}
+		for (Symbol s : syms) {
+			s.setUnit(unit);
+			define(s);
+		}
+		return removed;
+	}
+
 	/** Return a list of scopes nested within this scope. It has both
 	 *  ScopedSymbols and scopes without symbols, such as LocalScopes.
 	 *  This returns a superset or same set as {@link #getNestedScopedSymbols}.
 	 *  ScopedSymbols come first then all non-ScopedSymbols Scope objects.
-	 *  Insertion order is used within each sublist.
+	 *  Insertion order is used within each sublist. The list may be a
+	 *  read-only view that reflects later changes to this scope.
 	 */
 	List<Scope> getNestedScopes();
 
@@ -87,7 +182,8 @@ public interface Scope {
 	List<Scope> getNestedScopedSymbols();
 
 	/** Return the symbols defined within this scope. The order of insertion
-	 *  into the scope is the order returned in this list.
+	 *  into the scope is the order returned in this list. The list may be a
+	 *  read-only view that reflects later changes to this scope.
 	 */
 	List<? extends Symbol> getSymbols();
 
@@ -104,6 +200,15 @@ public interface Scope {
 	/** Number of symbols in this specific scope */
 	int getNumberOfSymbols();
 
+	/** Make this scope and all scopes nested within it immutable. Afterwards
+	 *  define() and nest() throw IllegalStateException and the scope tree
+	 *  may be read from many threads without locking, provided it is
+	 *  published to them safely. See {@link SymbolTable#freeze()}.
+	 */
+	void freeze();
+
+	default boolean isFrozen() { return false; }
+
 	/** Return scopes from to current with separator in between */
 	public String toQualifierString(String separator);
 }
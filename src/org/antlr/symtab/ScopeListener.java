@@ -0,0 +1,34 @@
+package org.antlr.symtab;
+
+/** Hears about changes to a scope tree. A listener added to a scope hears
+ *  about changes to that scope and to every scope nested within it at the
+ *  time of the change, so one listener on a global scope sees the whole
+ *  program. Events fire after the change is made. Override only what you
+ *  need.
+ *
+ *  Listeners run on the thread making the change; those on a
+ *  {@link ConcurrentGlobalScope} must be thread-safe.
+ */
+public interface ScopeListener {
+	/** sym was defined in scope; it may shadow a symbol of the same name
+	 *  in an enclosing scope or superclass.
+	 */
+	default void symbolDefined(Scope scope, Symbol sym) { }
+
+	/** sym was undefined from scope or dropped by replaceUnit() */
+	default void symbolRemoved(Scope scope, Symbol sym) { }
+
+	/** old was replaced in scope by sym */
+	default void symbolReplaced(Scope scope, Symbol old, Symbol sym) { }
+
+	default void scopeNested(Scope scope, Scope nested) { }
+
+	default void scopeUnnested(Scope scope, Scope nested) { }
+
+	/** c now extends the class named c.getSuperClassName(); it used to
+	 *  extend oldSuperClassName, which may be null. The names are the same
+	 *  when the class by that name was removed or replaced, say by
+	 *  replaceUnit().
+	 */
+	default void superClassChanged(ClassSymbol c, String oldSuperClassName) { }
+}
@@ -0,0 +1,202 @@
+package org.antlr.symtab;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/** Whole-tree traversals over a scope and every scope nested within it,
+ *  both scoped symbols like classes and plain scopes like LocalScopes.
+ *  Nothing is copied up front: iterators and streams walk the tree as they
+ *  go, and a parallel stream hands whole subtrees to other threads of the
+ *  common ForkJoinPool.
+ *
+ *  Sequential iteration is pre-order, a scope before the scopes nested in
+ *  it. Parallel streams are unordered. Don't change the tree while walking
+ *  it; {@link Scope#freeze() frozen} trees are safe to walk from many
+ *  threads.
+ */
+public class ScopeTraversal {
+	/** Walk root and its nested scopes, calling v in pre-order */
+	public static void walk(Scope root, ScopeVisitor v) {
+		if ( v.enterScope(root) ) {
+			for (Symbol sym : root.getSymbols()) {
+				v.visitSymbol(sym);
+			}
+			for (Scope nested : root.getNestedScopes()) {
+				walk(nested, v);
+			}
+		}
+		v.exitScope(root);
+	}
+
+	/** Iterate over root and every scope nested within it in pre-order */
+	public static Iterator<Scope> scopeIterator(Scope root) {
+		return new ScopeSpliterator(root).iterator();
+	}
+
+	/** Iterate over every symbol defined in root or any scope nested in it,
+	 *  scope by scope in pre-order.
+	 */
+	public static Iterator<Symbol> symbolIterator(Scope root) {
+		return Spliterators.iterator(new SymbolSpliterator(new ScopeSpliterator(root)));
+	}
+
+	public static Spliterator<Scope> scopeSpliterator(Scope root) {
+		return new ScopeSpliterator(root);
+	}
+
+	/** Stream over root and every scope nested within it */
+	public static Stream<Scope> scopes(Scope root, boolean parallel) {
+		return StreamSupport.stream(new ScopeSpliterator(root), parallel);
+	}
+
+	/** Stream over every symbol defined in root or any scope nested in it.
+	 *  In parallel, scopes are split across threads and each scope's
+	 *  symbols are visited by the thread that got the scope.
+	 */
+	public static Stream<Symbol> symbols(Scope root, boolean parallel) {
+		return StreamSupport.stream(new SymbolSpliterator(new ScopeSpliterator(root)), parallel);
+	}
+
+	public static Spliterator<Symbol> symbolSpliterator(Scope root) {
+		return new SymbolSpliterator(new ScopeSpliterator(root));
+	}
+
+	/** Pre-order over a scope tree. pending holds subtrees not yet
+	 *  started, next one at the head; ready holds scopes whose nested
+	 *  scopes have been pushed to pending by a split but that have not
+	 *  been reported themselves. Splitting gives away the half of pending
+	 *  nearest the root, which tends to be the bigger subtrees.
+	 */
+	protected static class ScopeSpliterator implements Spliterator<Scope> {
+		protected final Deque<Scope> pending = new ArrayDeque<>();
+		protected final Deque<Scope> ready = new ArrayDeque<>();
+		protected long est; // size is unknown; halve the guess on each split
+
+		public ScopeSpliterator(Scope root) {
+			pending.push(root);
+			est = Long.MAX_VALUE;
+		}
+
+		protected ScopeSpliterator(long est) {
+			this.est = est;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Scope> action) {
+			Scope s = nextScope();
+			if ( s==null ) return false;
+			action.accept(s);
+			return true;
+		}
+
+		/** Return the next scope, or null if done */
+		protected Scope nextScope() {
+			Scope s = ready.poll();
+			if ( s==null ) {
+				s = pending.poll();
+				if ( s!=null ) {
+					pushNested(s);
+				}
+			}
+			return s;
+		}
+
+		protected void pushNested(Scope s) {
+			List<Scope> nested = s.getNestedScopes();
+			for (int i = nested.size()-1; i>=0; i--) { // so first nested comes off first
+				pending.push(nested.get(i));
+			}
+		}
+
+		@Override
+		public Spliterator<Scope> trySplit() {
+			// open up single subtrees until there's something to share
+			while ( pending.size()==1 && !pending.peek().getNestedScopes().isEmpty() ) {
+				Scope s = pending.pop();
+				ready.add(s);
+				pushNested(s);
+			}
+			int n = pending.size()/2;
+			if ( n==0 ) return null;
+			ScopeSpliterator split = new ScopeSpliterator(est >>>= 1);
+			for (int i = 0; i<n; i++) {
+				split.pending.push(pending.removeLast());
+			}
+			return split;
+		}
+
+		@Override
+		public long estimateSize() { return est; }
+
+		@Override
+		public int characteristics() { return NONNULL; }
+
+		protected Iterator<Scope> iterator() {
+			return new Iterator<Scope>() {
+				@Override
+				public boolean hasNext() { return !ready.isEmpty() || !pending.isEmpty(); }
+
+				@Override
+				public Scope next() {
+					Scope s = nextScope();
+					if ( s==null ) throw new NoSuchElementException();
+					return s;
+				}
+			};
+		}
+	}
+
+	/** The symbols of each scope a ScopeSpliterator reaches; cheaper than
+	 *  flatMap(), which builds a stream per scope.
+	 */
+	protected static class SymbolSpliterator implements Spliterator<Symbol> {
+		protected final ScopeSpliterator scopes;
+		protected Iterator<? extends Symbol> current = Collections.emptyIterator();
+
+		public SymbolSpliterator(ScopeSpliterator scopes) {
+			this.scopes = scopes;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super Symbol> action) {
+			while ( !current.hasNext() ) {
+				Scope s = scopes.nextScope();
+				if ( s==null ) return false;
+				current = s.getSymbols().iterator();
+			}
+			action.accept(current.next());
+			return true;
+		}
+
+		@Override
+		public void forEachRemaining(Consumer<? super Symbol> action) {
+			current.forEachRemaining(action);
+			for (Scope s = scopes.nextScope(); s!=null; s = scopes.nextScope()) {
+				for (Symbol sym : s.getSymbols()) {
+					action.accept(sym);
+				}
+			}
+		}
+
+		@Override
+		public Spliterator<Symbol> trySplit() {
+			ScopeSpliterator split = (ScopeSpliterator)scopes.trySplit();
+			return split!=null ? new SymbolSpliterator(split) : null;
+		}
+
+		@Override
+		public long estimateSize() { return scopes.estimateSize(); }
+
+		@Override
+		public int characteristics() { return NONNULL; }
+	}
+}
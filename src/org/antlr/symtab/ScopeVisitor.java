@@ -0,0 +1,16 @@
+package org.antlr.symtab;
+
+/** Callbacks for {@link ScopeTraversal#walk}. Scopes are visited in
+ *  pre-order: enterScope(), then each symbol defined in the scope, then
+ *  the nested scopes, then exitScope(). Override only what you need.
+ */
+public interface ScopeVisitor {
+	/** Return false to skip the symbols and nested scopes of scope;
+	 *  exitScope() is still called.
+	 */
+	default boolean enterScope(Scope scope) { return true; }
+
+	default void visitSymbol(Symbol sym) { }
+
+	default void exitScope(Scope scope) { }
+}
@@ -0,0 +1,28 @@
+package org.antlr.symtab;
+
+import java.util.List;
+
+/** A unique set of strings, each mapped to a dense index from 0 in the
+ *  order added; see {@link StringTable} and {@link ConcurrentStringTable}.
+ */
+public interface StringPool {
+	/** Add s if new and return its index */
+	int add(String s);
+
+	/** Get the ith string or null if out of range */
+	String get(int i);
+
+	int size();
+
+	/** Return an array, possibly of length zero, with all strings
+	 *  sitting at their appropriate index within the array.
+	 */
+	String[] toArray();
+
+	/** Return a List, possibly of length zero, with all strings
+	 *  sitting at their appropriate index within the list.
+	 */
+	List<String> toList();
+
+	int getNumberOfStrings();
+}
@@ -13,11 +13,12 @@ import java.util.List;
  *  Yes, I know that this is similar to {@link String#intern()} but in this
  *  case, I need the index out not just to make these strings unique.
  */
-public class StringTable {
+public class StringTable implements StringPool {
 	protected LinkedHashMap<String,Integer> table = new LinkedHashMap<String,Integer>();
 	protected int index = -1; // index we have just written
 	protected List<String> strings = new ArrayList<>();
 
+	@Override
 	public int add(String s) {
 		Integer I = table.get(s);
 		if ( I!=null ) return I;
@@ -28,6 +29,7 @@ public class StringTable {
 	}
 
 	/** Get the ith string or null if out of range */
+	@Override
 	public String get(int i) {
 		if ( i<size() && i>=0 ) {
 			return strings.get(i);
@@ -35,11 +37,13 @@ public class StringTable {
 		return null;
 	}
 
+	@Override
 	public int size() { return table.size(); }
 
 	/** Return an array, possibly of length zero, with all strings
 	 *  sitting at their appropriate index within the array.
 	 */
+	@Override
 	public String[] toArray() {
 		return strings.toArray(new String[strings.size()]);
 	}
@@ -47,10 +51,12 @@ public class StringTable {
 	/** Return a List, possibly of length zero, with all strings
 	 *  sitting at their appropriate index within the array.
 	 */
+	@Override
 	public List<String> toList() {
 		return strings;
 	}
 
+	@Override
 	public int getNumberOfStrings() {
 		return index + 1;
 	}
@@ -12,6 +12,13 @@ public interface Symbol {
 	int getInsertionOrderNumber(); // index showing insertion order from 0
 	void setInsertionOrderNumber(int i);
 
+	/** The compilation unit, file or other owner that contributed this
+	 *  symbol, or null if not tracked. See {@link Scope#replaceUnit}.
+	 */
+	Object getUnit();
+
+	void setUnit(Object unit);
+
 	// to satisfy adding symbols to sets, hashtables
 	int hashCode();
 	boolean equals(Object o);
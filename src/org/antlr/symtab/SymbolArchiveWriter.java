@@ -0,0 +1,132 @@
+package org.antlr.symtab;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Write the symbols of a library scope as a symbol archive that
+ *  {@link ArchiveScope} maps into memory and reads lazily. Each top-level
+ *  symbol, with everything nested in it, is an independent entry in the
+ *  {@link SymbolTableWriter} encoding. Types that refer to symbols in other
+ *  entries are written by name, or by path of names for nested symbols,
+ *  and resolved when the entry is loaded.
+ *
+ *  Layout, with all positions absolute and ints fixed-width so they can be
+ *  read in place: header; strings as modified UTF-8; string offsets; entries;
+ *  hashed name index of (hash, name index+1, entry position) slots;
+ *  (name index, entry position) pairs in definition order.
+ */
+public class SymbolArchiveWriter extends SymbolTableWriter {
+	public static final int ARCHIVE_MAGIC = 0x53594D41; // "SYMA"
+	public static final int ARCHIVE_VERSION = 1;
+	public static final int HEADER_SIZE = 8*4;
+	public static final int INDEX_SLOT_SIZE = 3*4;
+
+	protected Scope root;
+
+	public static void write(Scope scope, Path file) throws IOException {
+		try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file))) {
+			new SymbolArchiveWriter().writeArchive(scope, os);
+		}
+	}
+
+	public void writeArchive(Scope scope, OutputStream os) throws IOException {
+		root = scope;
+		ByteArrayOutputStream entries = new ByteArrayOutputStream();
+		out = new DataOutputStream(entries);
+		List<? extends Symbol> symbols = scope.getSymbols();
+		int n = symbols.size();
+		int[] entryOffsets = new int[n];
+		int[] names = new int[n];
+		for (int i = 0; i<n; i++) {
+			Symbol sym = symbols.get(i);
+			entryOffsets[i] = out.size();
+			names[i] = strings.add(sym.getName());
+			ids.clear(); // symbol numbers are local to an entry
+			writeSymbol(sym);
+			writeTypes();
+		}
+		out.flush();
+
+		ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+		DataOutputStream sout = new DataOutputStream(stringBytes);
+		String[] all = strings.toArray();
+		int[] stringOffsets = new int[all.length];
+		for (int i = 0; i<all.length; i++) {
+			stringOffsets[i] = HEADER_SIZE+sout.size();
+			sout.writeUTF(all[i]);
+		}
+		sout.flush();
+
+		int stringOffsetsPos = HEADER_SIZE+stringBytes.size();
+		int entriesPos = stringOffsetsPos+4*all.length;
+		int indexPos = entriesPos+entries.size();
+		int slots = Integer.highestOneBit(Math.max(n, 1)*4-1); // load <= 1/2
+		int orderPos = indexPos+INDEX_SLOT_SIZE*slots;
+
+		int[] index = new int[slots*3];
+		for (int i = 0; i<n; i++) {
+			int h = all[names[i]].hashCode();
+			int slot = SymbolMap.spread(h) & (slots-1);
+			while ( index[slot*3+1]!=0 ) {
+				slot = (slot+1) & (slots-1);
+			}
+			index[slot*3] = h;
+			index[slot*3+1] = names[i]+1;
+			index[slot*3+2] = entriesPos+entryOffsets[i];
+		}
+
+		DataOutputStream dos = new DataOutputStream(os);
+		dos.writeInt(ARCHIVE_MAGIC);
+		dos.writeInt(ARCHIVE_VERSION);
+		dos.writeInt(all.length);
+		dos.writeInt(stringOffsetsPos);
+		dos.writeInt(n);
+		dos.writeInt(indexPos);
+		dos.writeInt(slots);
+		dos.writeInt(orderPos);
+		stringBytes.writeTo(dos);
+		for (int off : stringOffsets) {
+			dos.writeInt(off);
+		}
+		entries.writeTo(dos);
+		for (int v : index) {
+			dos.writeInt(v);
+		}
+		for (int i = 0; i<n; i++) {
+			dos.writeInt(names[i]);
+			dos.writeInt(entriesPos+entryOffsets[i]);
+		}
+		dos.flush();
+	}
+
+	/** Refer to symbols elsewhere in the archive by their path from the
+	 *  archived scope; anything else just by name.
+	 */
+	@Override
+	protected void writeExternalType(Symbol t) throws IOException {
+		List<String> path = new ArrayList<>();
+		Symbol s = t;
+		while ( s!=null && s.getScope()!=root ) {
+			path.add(0, s.getName());
+			Scope enclosing = s.getScope();
+			s = enclosing instanceof Symbol ? (Symbol)enclosing : null;
+		}
+		if ( s==null || path.isEmpty() ) { // outside archive or top-level
+			super.writeExternalType(t);
+			return;
+		}
+		path.add(0, s.getName());
+		writeVarInt(out, QUALIFIED_TYPE);
+		writeVarInt(out, path.size());
+		for (String name : path) {
+			writeString(name);
+		}
+	}
+}
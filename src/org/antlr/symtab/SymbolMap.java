@@ -0,0 +1,319 @@
+package org.antlr.symtab;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/** A compact, insertion-ordered map from symbol name to symbol. This is
+ *  the dictionary behind {@link BaseScope}. Most scopes, particularly
+ *  {@link LocalScope}s, hold only a handful of symbols so nothing is
+ *  allocated until the first put. Up to {@link #LINEAR_SCAN_LIMIT} entries
+ *  are found by scanning parallel key/hash/value arrays; past that we add
+ *  an open-addressing index of positions into those arrays.
+ *
+ *  Null keys are not allowed. {@link #values()} is a read-only List
+ *  view in insertion order.
+ *
+ *  After {@link #freeze()} the map rejects changes and is safe to read
+ *  from many threads once published.
+ */
+public class SymbolMap extends AbstractMap<String, Symbol> {
+	/** Max number of entries found by linear scan before building an index */
+	public static final int LINEAR_SCAN_LIMIT = 8;
+
+	protected static final String[] NO_KEYS = new String[0];
+	protected static final Symbol[] NO_VALUES = new Symbol[0];
+	protected static final int[] NO_HASHES = new int[0];
+
+	protected String[] keys = NO_KEYS;     // keys in insertion order
+	protected Symbol[] values = NO_VALUES; // values[i] is mapped by keys[i]
+	protected int[] hashes = NO_HASHES;    // hashes[i] is keys[i].hashCode()
+	protected int size;
+
+	/** Open-addressing table holding position+1 of each entry; 0 marks an
+	 *  empty slot. Null while we are small enough to scan.
+	 */
+	protected int[] index;
+
+	protected boolean frozen;
+
+	protected Set<String> keyView;
+	protected List<Symbol> valueView;
+	protected Set<Map.Entry<String, Symbol>> entryView;
+
+	public SymbolMap() { }
+
+	public SymbolMap(Map<String, ? extends Symbol> m) { putAll(m); }
+
+	@Override
+	public int size() { return size; }
+
+	@Override
+	public Symbol get(Object key) {
+		if ( !(key instanceof String) ) return null;
+		int i = indexOf((String)key);
+		return i>=0 ? values[i] : null;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return key instanceof String && indexOf((String)key)>=0;
+	}
+
+	/** Look up an interned name using its precomputed hash */
+	public Symbol get(Name name) {
+		int i = indexOf(name.text, name.hash);
+		return i>=0 ? values[i] : null;
+	}
+
+	/** Return the insertion position of key or -1 if not present */
+	public int indexOf(String key) {
+		return indexOf(key, key.hashCode());
+	}
+
+	protected int indexOf(String key, int h) {
+		if ( index==null ) {
+			for (int i = 0; i<size; i++) {
+				if ( hashes[i]==h && (keys[i]==key || keys[i].equals(key)) ) {
+					return i;
+				}
+			}
+			return -1;
+		}
+		int mask = index.length-1;
+		for (int slot = spread(h) & mask; ; slot = (slot+1) & mask) {
+			int p = index[slot]-1;
+			if ( p<0 ) return -1;
+			if ( hashes[p]==h && (keys[p]==key || keys[p].equals(key)) ) {
+				return p;
+			}
+		}
+	}
+
+	@Override
+	public Symbol put(String key, Symbol value) {
+		checkNotFrozen();
+		int h = key.hashCode();
+		int i = indexOf(key, h);
+		if ( i>=0 ) { // replace in place, keeping position
+			Symbol old = values[i];
+			values[i] = value;
+			return old;
+		}
+		if ( size==keys.length ) {
+			int n = Math.max(4, size*2);
+			keys = Arrays.copyOf(keys, n);
+			values = Arrays.copyOf(values, n);
+			hashes = Arrays.copyOf(hashes, n);
+		}
+		keys[size] = key;
+		values[size] = value;
+		hashes[size] = h;
+		size++;
+		if ( index!=null && size*2<=index.length ) {
+			addToIndex(size-1);
+		}
+		else if ( size>LINEAR_SCAN_LIMIT ) {
+			rebuildIndex();
+		}
+		return null;
+	}
+
+	@Override
+	public Symbol remove(Object key) {
+		if ( !(key instanceof String) ) return null;
+		int i = indexOf((String)key);
+		if ( i<0 ) return null;
+		checkNotFrozen();
+		Symbol old = values[i];
+		removeAt(i);
+		return old;
+	}
+
+	/** Remove the entry at position i, shifting later entries down */
+	protected void removeAt(int i) {
+		int n = size-i-1;
+		System.arraycopy(keys, i+1, keys, i, n);
+		System.arraycopy(values, i+1, values, i, n);
+		System.arraycopy(hashes, i+1, hashes, i, n);
+		size--;
+		keys[size] = null;
+		values[size] = null;
+		if ( size>LINEAR_SCAN_LIMIT ) {
+			rebuildIndex(); // positions after i all moved
+		}
+		else {
+			index = null;
+		}
+	}
+
+	/** Remove every entry whose value matches filter in one pass, keeping
+	 *  the order of the rest. Return true if any were removed.
+	 */
+	public boolean removeIf(Predicate<? super Symbol> filter) {
+		checkNotFrozen();
+		int j = 0;
+		for (int i = 0; i<size; i++) {
+			if ( !filter.test(values[i]) ) {
+				keys[j] = keys[i];
+				values[j] = values[i];
+				hashes[j] = hashes[i];
+				j++;
+			}
+		}
+		if ( j==size ) return false;
+		Arrays.fill(keys, j, size, null);
+		Arrays.fill(values, j, size, null);
+		size = j;
+		if ( size>LINEAR_SCAN_LIMIT ) {
+			rebuildIndex();
+		}
+		else {
+			index = null;
+		}
+		return true;
+	}
+
+	@Override
+	public void clear() {
+		checkNotFrozen();
+		keys = NO_KEYS;
+		values = NO_VALUES;
+		hashes = NO_HASHES;
+		size = 0;
+		index = null;
+	}
+
+	/** Make this map read-only. Arrays are trimmed to size and larger maps
+	 *  get a sparser index than while mutable, for shorter probes.
+	 */
+	public void freeze() {
+		if ( frozen ) return;
+		keys = Arrays.copyOf(keys, size);
+		values = Arrays.copyOf(values, size);
+		hashes = Arrays.copyOf(hashes, size);
+		if ( size>LINEAR_SCAN_LIMIT ) {
+			buildIndex(Integer.highestOneBit(size*8-1)); // load <= 1/4
+		}
+		// create views now so readers never race to create them
+		keySet();
+		values();
+		entrySet();
+		frozen = true;
+	}
+
+	public boolean isFrozen() { return frozen; }
+
+	protected void checkNotFrozen() {
+		if ( frozen ) {
+			throw new UnsupportedOperationException("symbol map is frozen");
+		}
+	}
+
+	protected void rebuildIndex() {
+		buildIndex(Integer.highestOneBit(Math.max(size, 1)*4-1)); // load <= 1/2
+	}
+
+	protected void buildIndex(int n) {
+		index = new int[n];
+		for (int i = 0; i<size; i++) {
+			addToIndex(i);
+		}
+	}
+
+	protected void addToIndex(int p) {
+		int mask = index.length-1;
+		int slot = spread(hashes[p]) & mask;
+		while ( index[slot]!=0 ) {
+			slot = (slot+1) & mask;
+		}
+		index[slot] = p+1;
+	}
+
+	/** Scramble h so similar names, like x1, x2, ..., which get nearby
+	 *  String hashes, don't fill runs of neighboring slots; with linear
+	 *  probing such runs make lookups in big scopes scan far.
+	 */
+	protected static int spread(int h) {
+		h *= 0x9E3779B9; // golden ratio
+		return h ^ (h>>>16);
+	}
+
+	@Override
+	public Set<String> keySet() {
+		if ( keyView==null ) {
+			keyView = new AbstractSet<String>() {
+				@Override public int size() { return size; }
+				@Override public boolean contains(Object o) { return containsKey(o); }
+				@Override public Iterator<String> iterator() {
+					return new PositionIterator<String>() {
+						@Override String at(int i) { return keys[i]; }
+					};
+				}
+			};
+		}
+		return keyView;
+	}
+
+	/** A read-only list of the values in insertion order */
+	@Override
+	public List<Symbol> values() {
+		if ( valueView==null ) {
+			valueView = new ValueList();
+		}
+		return valueView;
+	}
+
+	@Override
+	public Set<Map.Entry<String, Symbol>> entrySet() {
+		if ( entryView==null ) {
+			entryView = new AbstractSet<Map.Entry<String, Symbol>>() {
+				@Override public int size() { return size; }
+				@Override public Iterator<Map.Entry<String, Symbol>> iterator() {
+					return new PositionIterator<Map.Entry<String, Symbol>>() {
+						@Override Map.Entry<String, Symbol> at(int i) {
+							return new SimpleImmutableEntry<>(keys[i], values[i]);
+						}
+					};
+				}
+			};
+		}
+		return entryView;
+	}
+
+	protected class ValueList extends AbstractList<Symbol> implements RandomAccess {
+		@Override
+		public Symbol get(int i) {
+			if ( i<0 || i>=size ) {
+				throw new IndexOutOfBoundsException("Index: "+i+", Size: "+size);
+			}
+			return values[i];
+		}
+
+		@Override
+		public int size() { return size; }
+	}
+
+	abstract class PositionIterator<T> implements Iterator<T> {
+		int next = 0;
+
+		abstract T at(int i);
+
+		@Override
+		public boolean hasNext() { return next<size; }
+
+		@Override
+		public T next() {
+			if ( next>=size ) throw new NoSuchElementException();
+			return at(next++);
+		}
+	}
+}
@@ -1,5 +1,8 @@
 package org.antlr.symtab;
 
+import java.util.Collection;
+import java.util.List;
+
 /** A marginally useful object to track predefined and global scopes. */
 public class SymbolTable {
 	public static final Type INVALID_TYPE = new InvalidType();
@@ -7,6 +10,22 @@ public class SymbolTable {
 	public BaseScope PREDEFINED = new PredefinedScope();
 	public GlobalScope GLOBALS = new GlobalScope(PREDEFINED);
 
+	/** Type indexes of {@link #TYPES} start here, past any that
+	 *  {@link #getTypeRegistry()} gives predefined and global types, so the
+	 *  table has one index space.
+	 */
+	public static final int FIRST_FACTORY_TYPE_INDEX = 1<<24;
+
+	/** Canonical array, pointer and function types */
+	public TypeFactory TYPES = new TypeFactory(FIRST_FACTORY_TYPE_INDEX);
+
+	protected volatile boolean frozen;
+
+	protected TypeRegistry typeRegistry;
+	protected QualifiedNameIndex qualifiedNameIndex;
+	protected CompletionIndex completionIndex;
+	protected TypeIndexMap typeIndexMap;
+
 	public SymbolTable() {
 	}
 
@@ -20,4 +39,103 @@ public class SymbolTable {
 	public void defineGlobalSymbol(Symbol s) {
 		GLOBALS.define(s);
 	}
+
+	/** Tell l about changes to the predefined and global scope trees */
+	public void addListener(ScopeListener l) {
+		PREDEFINED.addScopeListener(l);
+		if ( !encloses(PREDEFINED, GLOBALS) ) { // else we hear GLOBALS through PREDEFINED
+			GLOBALS.addScopeListener(l);
+		}
+	}
+
+	public void removeListener(ScopeListener l) {
+		PREDEFINED.removeScopeListener(l);
+		GLOBALS.removeScopeListener(l);
+	}
+
+	protected static boolean encloses(Scope outer, Scope scope) {
+		for (Scope s = scope; s!=null; s = s.getEnclosingScope()) {
+			if ( s==outer ) return true;
+		}
+		return false;
+	}
+
+	/** Get the registry of this table's types and their relations,
+	 *  creating it and listening for changes the first time.
+	 */
+	public synchronized TypeRegistry getTypeRegistry() {
+		if ( typeRegistry==null ) {
+			typeRegistry = new TypeRegistry(TYPES.getFirstTypeIndex(), PREDEFINED, GLOBALS);
+			addListener(typeRegistry);
+		}
+		return typeRegistry;
+	}
+
+	/** Get the index of global and predefined symbols by dot-separated
+	 *  qualified name, creating it and listening for changes the first
+	 *  time. Globals win over predefined symbols of the same name.
+	 */
+	public synchronized QualifiedNameIndex getQualifiedNameIndex() {
+		if ( qualifiedNameIndex==null ) {
+			qualifiedNameIndex = new QualifiedNameIndex(".", GLOBALS, PREDEFINED);
+			addListener(qualifiedNameIndex);
+		}
+		return qualifiedNameIndex;
+	}
+
+	/** Get the completion index for scopes of this table, creating it and
+	 *  listening for changes the first time.
+	 */
+	public synchronized CompletionIndex getCompletionIndex() {
+		if ( completionIndex==null ) {
+			completionIndex = new CompletionIndex();
+			addListener(completionIndex);
+		}
+		return completionIndex;
+	}
+
+	/** Get the map from type index to the predefined, global and
+	 *  {@link #TYPES} types, creating it and listening for changes the
+	 *  first time. Predefined and global types are numbered by
+	 *  {@link #getTypeRegistry()}.
+	 */
+	public synchronized TypeIndexMap getTypeIndexMap() {
+		if ( typeIndexMap==null ) {
+			typeIndexMap = new TypeIndexMap(TYPES, PREDEFINED, GLOBALS);
+			typeIndexMap.setTypeRegistry(getTypeRegistry());
+			addListener(typeIndexMap);
+		}
+		return typeIndexMap;
+	}
+
+	/** Get the type with this index or null; hold on to
+	 *  {@link #getTypeIndexMap()} instead in loops.
+	 */
+	public Type getType(int typeIndex) {
+		return getTypeIndexMap().get(typeIndex);
+	}
+
+	/** Swap what unit contributed to the global scope; see
+	 *  {@link Scope#replaceUnit}.
+	 */
+	public List<Symbol> replaceUnit(Object unit, Collection<? extends Symbol> syms) {
+		return GLOBALS.replaceUnit(unit, syms);
+	}
+
+	/** Freeze the predefined and global scope trees once definition is
+	 *  done. Lookups then avoid the caches and superclass walks of the
+	 *  mutable tree and the tables can be read from many threads without
+	 *  locks. Reader threads must see {@link #isFrozen()} return true, or
+	 *  get this table through some other safe handoff like an executor,
+	 *  before reading. The type registry's tables are built now, numbering
+	 *  the types, so queries never write to the frozen symbols.
+	 */
+	public void freeze() {
+		getTypeRegistry().freeze();
+		PREDEFINED.freeze();
+		GLOBALS.freeze();
+		frozen = true; // volatile write publishes the frozen trees
+	}
+
+	public boolean isFrozen() { return frozen; }
 }
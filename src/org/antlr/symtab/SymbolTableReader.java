@@ -0,0 +1,301 @@
+package org.antlr.symtab;
+
+import java.io.BufferedInputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.antlr.symtab.SymbolTableWriter.*;
+
+/** Load a symbol table written by {@link SymbolTableWriter}. Symbols are
+ *  created as library classes, defined in the same order they were
+ *  written and then given back their recorded slot numbers, type indexes
+ *  and insertion order. Definition nodes are left null.
+ *
+ *  Malformed or incompatible input results in an IOException.
+ */
+public class SymbolTableReader {
+	/** Most elements we allocate room for before reading them */
+	public static final int MAX_PREALLOCATED = 1024;
+
+	protected DataInputStream in;
+	protected String[] strings;
+	protected final List<Symbol> symbols = new ArrayList<>(); // by the order written
+
+	/** Scope used to resolve types that refer to symbols by name */
+	protected Scope namedTypeScope;
+
+	/** Where array, pointer and function types are interned */
+	protected TypeFactory types;
+
+	/** Read into a fresh SymbolTable */
+	public static SymbolTable read(InputStream in) throws IOException {
+		return read(in, new SymbolTable());
+	}
+
+	/** Read into table's predefined and global scopes, which must not
+	 *  already define any of the symbols read.
+	 */
+	public static SymbolTable read(InputStream in, SymbolTable table) throws IOException {
+		new SymbolTableReader().readTable(in, table);
+		return table;
+	}
+
+	public void readTable(InputStream is, SymbolTable table) throws IOException {
+		in = new DataInputStream(is instanceof BufferedInputStream ? is : new BufferedInputStream(is));
+		if ( in.readInt()!=MAGIC ) {
+			throw new IOException("not a symbol table");
+		}
+		int version = readVarInt(in);
+		if ( version!=VERSION ) {
+			throw new IOException("can't read symbol table version "+version+"; expecting "+VERSION);
+		}
+		strings = readStrings(in);
+		namedTypeScope = table.GLOBALS;
+		types = table.TYPES;
+		readScopeBody(table.PREDEFINED);
+		readScopeBody(table.GLOBALS);
+		readTypes();
+	}
+
+	protected static String[] readStrings(DataInputStream in) throws IOException {
+		int n = readCount(in);
+		List<String> strings = new ArrayList<>(Math.min(n, MAX_PREALLOCATED));
+		for (int i = 0; i<n; i++) {
+			strings.add(in.readUTF()); // a bogus count runs into EOFException
+		}
+		return strings.toArray(new String[0]);
+	}
+
+	protected void readScopeBody(Scope scope) throws IOException {
+		int n = readVarInt(in);
+		for (int i = 0; i<n; i++) {
+			readSymbol(scope);
+		}
+		int nlocals = readVarInt(in);
+		for (int i = 0; i<nlocals; i++) {
+			int kind = readVarInt(in);
+			if ( kind!=LOCAL_SCOPE ) {
+				throw new IOException("bad scope kind "+kind);
+			}
+			LocalScope local = new LocalScope(scope);
+			scope.nest(local);
+			readScopeBody(local);
+		}
+	}
+
+	protected Symbol readSymbol(Scope scope) throws IOException {
+		int kind = readVarInt(in);
+		String name = readString();
+		int order = readVarInt(in);
+		Symbol sym;
+		switch ( kind ) {
+			case PRIMITIVE :
+				PrimitiveType p = new PrimitiveType(name);
+				p.setTypeIndex(readVarInt(in)-1);
+				sym = define(scope, p, order);
+				break;
+			case TYPE_ALIAS :
+				sym = define(scope, new TypeAlias(name, null), order);
+				break;
+			case VARIABLE :
+				sym = define(scope, new VariableSymbol(name), order);
+				break;
+			case PARAMETER :
+				sym = define(scope, new ParameterSymbol(name), order);
+				break;
+			case FIELD :
+				FieldSymbol f = new FieldSymbol(name);
+				int fslot = readVarInt(in)-1;
+				define(scope, f, order);
+				f.slot = fslot; // define() assigned one; put back the recorded slot
+				sym = f;
+				break;
+			case METHOD :
+				MethodSymbol m = new MethodSymbol(name);
+				int mslot = readVarInt(in)-1;
+				define(scope, m, order);
+				m.slot = mslot;
+				readScopeBody(m);
+				sym = m;
+				break;
+			case FUNCTION :
+				FunctionSymbol func = new FunctionSymbol(name);
+				define(scope, func, order);
+				readScopeBody(func);
+				sym = func;
+				break;
+			case CLASS :
+				ClassSymbol c = new ClassSymbol(name);
+				String superClassName = readOptionalString();
+				int nextMethodSlot = readVarInt(in);
+				readAggregate(scope, c, order);
+				// set after members so defining them doesn't go resolve the
+				// superclass for slot numbers; we have the recorded ones
+				c.superClassName = superClassName;
+				c.nextFreeMethodSlot = nextMethodSlot;
+				sym = c;
+				break;
+			case STRUCT :
+				StructSymbol s = new StructSymbol(name);
+				readAggregate(scope, s, order);
+				sym = s;
+				break;
+			default :
+				throw new IOException("bad symbol kind "+kind);
+		}
+		return sym;
+	}
+
+	protected void readAggregate(Scope scope, DataAggregateSymbol d, int order) throws IOException {
+		d.setTypeIndex(readVarInt(in)-1);
+		int nextFieldSlot = readVarInt(in);
+		define(scope, d, order);
+		readScopeBody(d);
+		d.nextFreeFieldSlot = nextFieldSlot;
+	}
+
+	/** Define sym in scope, number it in the order written and restore
+	 *  its recorded insertion order.
+	 */
+	protected Symbol define(Scope scope, Symbol sym, int order) throws IOException {
+		try {
+			scope.define(sym);
+		}
+		catch (IllegalArgumentException iae) { // a duplicate or a non-member in an aggregate
+			throw new IOException("can't define "+sym.getName()+": "+iae.getMessage(), iae);
+		}
+		sym.setInsertionOrderNumber(order);
+		symbols.add(sym);
+		return sym;
+	}
+
+	protected void readTypes() throws IOException {
+		int n = readVarInt(in);
+		for (int i = 0; i<n; i++) {
+			Symbol sym = getSymbol(readVarInt(in));
+			Type t = readType();
+			if ( sym instanceof TypeAlias ) {
+				((TypeAlias)sym).targetType = t;
+			}
+			else if ( sym instanceof TypedSymbol ) {
+				((TypedSymbol)sym).setType(t);
+			}
+			else {
+				throw new IOException("symbol "+sym.getName()+" can't have a type");
+			}
+		}
+	}
+
+	protected Type readType() throws IOException {
+		int tag = readVarInt(in);
+		switch ( tag ) {
+			case INVALID_TYPE :
+				return SymbolTable.INVALID_TYPE;
+			case SYMBOL_TYPE :
+				Symbol s = getSymbol(readVarInt(in));
+				if ( !(s instanceof Type) ) {
+					throw new IOException("symbol "+s.getName()+" is not a type");
+				}
+				return (Type)s;
+			case NAMED_TYPE :
+				return resolveNamedType(readString());
+			case QUALIFIED_TYPE :
+				int npath = readCount(in);
+				if ( npath==0 ) {
+					throw new IOException("empty qualified type name");
+				}
+				List<String> path = new ArrayList<>(Math.min(npath, MAX_PREALLOCATED));
+				for (int i = 0; i<npath; i++) {
+					path.add(readString());
+				}
+				return resolveQualifiedType(path.toArray(new String[0]));
+			case ARRAY_TYPE :
+				Type elemType = readType();
+				return types.arrayOf(elemType, readVarInt(in)-1);
+			case POINTER_TYPE :
+				return types.pointerTo(readType());
+			case FUNCTION_TYPE :
+				Type returnType = readType();
+				int nargs = readCount(in);
+				List<Type> args = new ArrayList<>(Math.min(nargs, MAX_PREALLOCATED));
+				for (int i = 0; i<nargs; i++) {
+					args.add(readType());
+				}
+				return types.functionType(returnType, args);
+			default :
+				throw new IOException("bad type tag "+tag);
+		}
+	}
+
+	protected Type resolveNamedType(String name) throws IOException {
+		Symbol s = namedTypeScope.resolve(name);
+		if ( !(s instanceof Type) ) {
+			throw new IOException("can't resolve type "+name);
+		}
+		return (Type)s;
+	}
+
+	/** Resolve path[0] then look up each following name inside the last */
+	protected Type resolveQualifiedType(String[] path) throws IOException {
+		Symbol s = namedTypeScope.resolve(path[0]);
+		for (int i = 1; i<path.length && s!=null; i++) {
+			s = s instanceof Scope ? ((Scope)s).getSymbol(path[i]) : null;
+		}
+		if ( !(s instanceof Type) ) {
+			throw new IOException("can't resolve type "+String.join(".", path));
+		}
+		return (Type)s;
+	}
+
+	protected Symbol getSymbol(int id) throws IOException {
+		if ( id<0 || id>=symbols.size() ) {
+			throw new IOException("bad symbol number "+id);
+		}
+		return symbols.get(id);
+	}
+
+	protected String readString() throws IOException {
+		int i = readVarInt(in);
+		if ( i<0 || i>=strings.length ) {
+			throw new IOException("bad string index "+Integer.toUnsignedString(i));
+		}
+		return strings[i];
+	}
+
+	protected String readOptionalString() throws IOException {
+		int i = readVarInt(in);
+		if ( i==0 ) return null;
+		if ( i<0 || i>strings.length ) {
+			throw new IOException("bad string index "+Integer.toUnsignedString(i-1));
+		}
+		return strings[i-1];
+	}
+
+	/** Read a count, which a well-formed stream never makes negative. Don't
+	 *  allocate by it, as a corrupt stream can claim any size; grow as
+	 *  elements are read instead.
+	 */
+	public static int readCount(DataInput in) throws IOException {
+		int n = readVarInt(in);
+		if ( n<0 ) {
+			throw new IOException("bad count "+Integer.toUnsignedString(n));
+		}
+		return n;
+	}
+
+	public static int readVarInt(DataInput in) throws IOException {
+		int v = 0;
+		for (int shift = 0; shift<35; shift += 7) {
+			int b = in.readUnsignedByte();
+			v |= (b & 0x7F)<<shift;
+			if ( (b & 0x80)==0 ) {
+				return v;
+			}
+		}
+		throw new IOException("malformed varint");
+	}
+}
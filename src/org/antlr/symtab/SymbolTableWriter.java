@@ -0,0 +1,239 @@
+package org.antlr.symtab;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Write the predefined and global scope trees of a {@link SymbolTable}
+ *  in a compact, versioned binary format that {@link SymbolTableReader}
+ *  loads back. We record symbols, nested local scopes, types, slot
+ *  numbers, type indexes and insertion order. Parse tree definition nodes
+ *  are not written. All names go through one {@link StringTable} so each
+ *  distinct string is stored once.
+ *
+ *  Only the symbol and type classes of this library are supported;
+ *  subclasses are written as, and read back as, their nearest library
+ *  class. Other symbol classes cause an IllegalArgumentException.
+ *
+ *  Layout: magic, version, string table, predefined scope, global scope,
+ *  then the types of all typed symbols and aliases. Types refer to symbols
+ *  by the order in which symbols were written so forward references work.
+ *  Ints are unsigned LEB128; values that may be -1 are stored plus one.
+ */
+public class SymbolTableWriter {
+	public static final int MAGIC = 0x53594D54; // "SYMT"
+	public static final int VERSION = 1;
+
+	// symbol kinds
+	public static final int PRIMITIVE = 1;
+	public static final int TYPE_ALIAS = 2;
+	public static final int VARIABLE = 3;
+	public static final int PARAMETER = 4;
+	public static final int FIELD = 5;
+	public static final int FUNCTION = 6;
+	public static final int METHOD = 7;
+	public static final int STRUCT = 8;
+	public static final int CLASS = 9;
+	public static final int LOCAL_SCOPE = 10;
+
+	// type tags
+	public static final int INVALID_TYPE = 0;
+	public static final int SYMBOL_TYPE = 1; // symbol written in this stream, by number
+	public static final int NAMED_TYPE = 2;  // symbol outside this stream, resolved by name
+	public static final int ARRAY_TYPE = 3;
+	public static final int POINTER_TYPE = 4;
+	public static final int FUNCTION_TYPE = 5;
+	public static final int QUALIFIED_TYPE = 6; // symbol outside this stream, by path of names
+
+	protected final StringTable strings = new StringTable();
+	protected final Map<Symbol, Integer> ids = new IdentityHashMap<>();
+	protected final List<Symbol> typedSymbols = new ArrayList<>();
+	protected DataOutputStream out;
+
+	public static void write(SymbolTable table, OutputStream out) throws IOException {
+		new SymbolTableWriter().writeTable(table, out);
+	}
+
+	public void writeTable(SymbolTable table, OutputStream os) throws IOException {
+		ByteArrayOutputStream body = new ByteArrayOutputStream();
+		out = new DataOutputStream(body);
+		writeScopeBody(table.PREDEFINED);
+		writeScopeBody(table.GLOBALS);
+		writeTypes();
+		out.flush();
+
+		DataOutputStream header = new DataOutputStream(os);
+		header.writeInt(MAGIC);
+		writeVarInt(header, VERSION);
+		writeStrings(header);
+		header.flush();
+		body.writeTo(os);
+		os.flush();
+	}
+
+	protected void writeStrings(DataOutputStream dos) throws IOException {
+		String[] all = strings.toArray();
+		writeVarInt(dos, all.length);
+		for (String s : all) {
+			dos.writeUTF(s);
+		}
+	}
+
+	/** Write the symbols of scope then its nested non-symbol scopes */
+	protected void writeScopeBody(Scope scope) throws IOException {
+		List<? extends Symbol> symbols = scope.getSymbols();
+		writeVarInt(out, symbols.size());
+		for (Symbol s : symbols) {
+			writeSymbol(s);
+		}
+		List<Scope> locals = new ArrayList<>();
+		for (Scope s : scope.getNestedScopes()) {
+			if ( !(s instanceof Symbol) ) {
+				locals.add(s);
+			}
+		}
+		writeVarInt(out, locals.size());
+		for (Scope s : locals) {
+			writeVarInt(out, LOCAL_SCOPE);
+			writeScopeBody(s);
+		}
+	}
+
+	protected void writeSymbol(Symbol sym) throws IOException {
+		int kind = kindOf(sym);
+		writeVarInt(out, kind);
+		writeString(sym.getName());
+		writeVarInt(out, sym.getInsertionOrderNumber());
+		ids.put(sym, ids.size());
+		if ( sym instanceof TypedSymbol && ((TypedSymbol)sym).getType()!=null ||
+			 sym instanceof TypeAlias && ((TypeAlias)sym).getTargetType()!=null )
+		{
+			typedSymbols.add(sym);
+		}
+		switch ( kind ) {
+			case PRIMITIVE :
+				writeVarInt(out, ((PrimitiveType)sym).getTypeIndex()+1);
+				break;
+			case FIELD :
+				writeVarInt(out, ((FieldSymbol)sym).getSlotNumber()+1);
+				break;
+			case METHOD :
+				writeVarInt(out, ((MethodSymbol)sym).getSlotNumber()+1);
+				writeScopeBody((Scope)sym);
+				break;
+			case FUNCTION :
+				writeScopeBody((Scope)sym);
+				break;
+			case CLASS :
+				ClassSymbol c = (ClassSymbol)sym;
+				writeOptionalString(c.getSuperClassName());
+				writeVarInt(out, c.nextFreeMethodSlot);
+				writeAggregate(c);
+				break;
+			case STRUCT :
+				writeAggregate((DataAggregateSymbol)sym);
+				break;
+		}
+	}
+
+	/** Write what structs and classes share, after any class-only part */
+	protected void writeAggregate(DataAggregateSymbol d) throws IOException {
+		writeVarInt(out, d.getTypeIndex()+1);
+		writeVarInt(out, d.nextFreeFieldSlot);
+		writeScopeBody(d);
+	}
+
+	/** Write the type of every symbol that has one, keyed by symbol number */
+	protected void writeTypes() throws IOException {
+		writeVarInt(out, typedSymbols.size());
+		for (Symbol s : typedSymbols) {
+			writeVarInt(out, ids.get(s));
+			Type t = s instanceof TypeAlias ? ((TypeAlias)s).getTargetType() : ((TypedSymbol)s).getType();
+			writeType(t);
+		}
+		typedSymbols.clear();
+	}
+
+	protected void writeType(Type t) throws IOException {
+		if ( t instanceof InvalidType ) {
+			writeVarInt(out, INVALID_TYPE);
+		}
+		else if ( t instanceof ArrayType ) {
+			ArrayType a = (ArrayType)t;
+			writeVarInt(out, ARRAY_TYPE);
+			writeType(a.elemType);
+			writeVarInt(out, a.numElems+1);
+		}
+		else if ( t instanceof PointerType ) {
+			writeVarInt(out, POINTER_TYPE);
+			writeType(((PointerType)t).targetType);
+		}
+		else if ( t instanceof FunctionType ) {
+			FunctionType f = (FunctionType)t;
+			writeVarInt(out, FUNCTION_TYPE);
+			writeType(f.returnType);
+			List<Type> args = f.getArgumentTypes();
+			writeVarInt(out, args!=null ? args.size() : 0);
+			if ( args!=null ) for (Type arg : args) {
+				writeType(arg);
+			}
+		}
+		else if ( t instanceof Symbol ) {
+			Integer id = ids.get(t);
+			if ( id!=null ) {
+				writeVarInt(out, SYMBOL_TYPE);
+				writeVarInt(out, id);
+			}
+			else {
+				writeExternalType((Symbol)t);
+			}
+		}
+		else {
+			throw new IllegalArgumentException("can't write type "+t.getClass().getSimpleName());
+		}
+	}
+
+	/** Write a reference to a type symbol not written in this stream. The
+	 *  reader resolves it by name.
+	 */
+	protected void writeExternalType(Symbol t) throws IOException {
+		writeVarInt(out, NAMED_TYPE);
+		writeString(t.getName());
+	}
+
+	protected static int kindOf(Symbol sym) {
+		if ( sym instanceof MethodSymbol ) return METHOD;
+		if ( sym instanceof FunctionSymbol ) return FUNCTION;
+		if ( sym instanceof ClassSymbol ) return CLASS;
+		if ( sym instanceof StructSymbol ) return STRUCT;
+		if ( sym instanceof FieldSymbol ) return FIELD;
+		if ( sym instanceof ParameterSymbol ) return PARAMETER;
+		if ( sym instanceof VariableSymbol ) return VARIABLE;
+		if ( sym instanceof PrimitiveType ) return PRIMITIVE;
+		if ( sym instanceof TypeAlias ) return TYPE_ALIAS;
+		throw new IllegalArgumentException("can't write symbol "+sym.getName()+" of "+sym.getClass().getSimpleName());
+	}
+
+	protected void writeString(String s) throws IOException {
+		writeVarInt(out, strings.add(s));
+	}
+
+	/** Write string index plus one, or 0 for null */
+	protected void writeOptionalString(String s) throws IOException {
+		writeVarInt(out, s!=null ? strings.add(s)+1 : 0);
+	}
+
+	public static void writeVarInt(DataOutput out, int v) throws IOException {
+		while ( (v & ~0x7F)!=0 ) {
+			out.writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte(v);
+	}
+}
@@ -1,8 +1,5 @@
 package org.antlr.symtab;
 
-import java.util.Collections;
-import java.util.List;
-
 /** An abstract base class that houses common functionality for
  *  symbols like classes and functions that are both symbols and scopes.
  *  There is some common cut and paste functionality with {@link BaseSymbol}
@@ -11,6 +8,7 @@ import java.util.List;
 public abstract class SymbolWithScope extends BaseScope implements Symbol, Scope {
 	protected final String name; // All symbols at least have a name
 	protected int index; 	// insertion order from 0; compilers often need this
+	protected Object unit;  // compilation unit that defined this, if tracked
 
 	public SymbolWithScope(String name) {
         this.name = name;
@@ -19,6 +17,8 @@ public abstract class SymbolWithScope extends BaseScope implements Symbol, Scope
 	@Override public String getName() { return name; }
 	@Override public Scope getScope() { return enclosingScope; }
 	@Override public void setScope(Scope scope) { setEnclosingScope(scope); }
+	@Override public Object getUnit() { return unit; }
+	@Override public void setUnit(Object unit) { this.unit = unit; }
 
     @Override public Scope getEnclosingScope() { return enclosingScope; }
 
@@ -35,12 +35,10 @@ public abstract class SymbolWithScope extends BaseScope implements Symbol, Scope
 	}
 
 	/** Return the fully qualified name includes all scopes from the root down
-	 *  to this particular symbol.
+	 *  to this particular symbol. Cached; see {@link #toQualifierString}.
 	 */
 	public String getFullyQualifiedName(String scopePathSeparator) {
-		List<Scope> path = getEnclosingPathToRoot();
-		Collections.reverse(path);
-		return Utils.joinScopeNames(path, scopePathSeparator);
+		return toQualifierString(scopePathSeparator);
 	}
 
 	@Override
@@ -0,0 +1,150 @@
+package org.antlr.symtab;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Hands out canonical array, pointer and function types: ask twice for
+ *  the same structure and you get the same instance, so types compare
+ *  with == and repeated type expressions cost no allocation. Canonical
+ *  types get dense type indexes in creation order, from
+ *  {@link #getFirstTypeIndex()} up, so they don't clash with the indexes
+ *  you give primitive and aggregate types.
+ *
+ *  Named types such as primitives, classes and aliases are their own
+ *  canonical instance; two types are the same only if they are the same
+ *  symbol. Methods are synchronized so units can be defined in parallel.
+ */
+public class TypeFactory {
+	protected final Map<Type, PointerType> pointers = new IdentityHashMap<>();
+	protected final Map<Type, ArrayType> arrays = new IdentityHashMap<>(); // of unspecified size
+	protected final Map<Type, Type> canonical = new HashMap<>();
+	protected final List<Type> types = new ArrayList<>(); // by type index - firstTypeIndex
+	protected int firstTypeIndex;
+
+	public TypeFactory() { }
+
+	public TypeFactory(int firstTypeIndex) {
+		this.firstTypeIndex = firstTypeIndex;
+	}
+
+	public synchronized PointerType pointerTo(Type targetType) {
+		targetType = intern(targetType);
+		PointerType p = pointers.get(targetType);
+		if ( p==null ) {
+			p = add(new PointerType(targetType));
+			pointers.put(targetType, p);
+		}
+		return p;
+	}
+
+	public synchronized ArrayType arrayOf(Type elemType) {
+		elemType = intern(elemType);
+		ArrayType a = arrays.get(elemType);
+		if ( a==null ) {
+			a = add(new ArrayType(elemType));
+			arrays.put(elemType, a);
+		}
+		return a;
+	}
+
+	/** Array of numElems elements, or of unspecified size if numElems<0 */
+	public synchronized ArrayType arrayOf(Type elemType, int numElems) {
+		if ( numElems<0 ) return arrayOf(elemType);
+		return (ArrayType)lookup(new ArrayType(intern(elemType), numElems));
+	}
+
+	public synchronized FunctionType functionType(Type returnType, List<Type> argumentTypes) {
+		List<Type> args;
+		if ( argumentTypes==null || argumentTypes.isEmpty() ) {
+			args = Collections.emptyList();
+		}
+		else {
+			args = new ArrayList<>(argumentTypes.size());
+			for (Type t : argumentTypes) {
+				args.add(intern(t));
+			}
+			args = Collections.unmodifiableList(args);
+		}
+		return (FunctionType)lookup(new FunctionType(intern(returnType), args));
+	}
+
+	/** Return the canonical instance of t, which may be t itself */
+	public synchronized Type intern(Type t) {
+		if ( !isStructural(t) || isCanonical(t) ) return t;
+		if ( t instanceof PointerType ) {
+			return pointerTo(((PointerType)t).targetType);
+		}
+		if ( t instanceof ArrayType ) {
+			ArrayType a = (ArrayType)t;
+			return arrayOf(a.elemType, a.numElems);
+		}
+		FunctionType f = (FunctionType)t;
+		return functionType(f.returnType, f.argumentTypes);
+	}
+
+	/** Get the canonical type with this type index or null if none */
+	public synchronized Type getType(int typeIndex) {
+		int i = typeIndex-firstTypeIndex;
+		return i>=0 && i<types.size() ? types.get(i) : null;
+	}
+
+	/** Number of canonical types created */
+	public synchronized int size() { return types.size(); }
+
+	public synchronized int getFirstTypeIndex() { return firstTypeIndex; }
+
+	/** Start type indexes at i, say one past your primitive and aggregate
+	 *  types. Only allowed before creating any types.
+	 */
+	public synchronized void setFirstTypeIndex(int i) {
+		if ( !types.isEmpty() ) {
+			throw new IllegalStateException("type indexes already assigned from "+firstTypeIndex);
+		}
+		firstTypeIndex = i;
+	}
+
+	/** Find the canonical type equal to probe, whose parts must be
+	 *  canonical, or make probe canonical.
+	 */
+	protected Type lookup(Type probe) {
+		Type t = canonical.get(probe);
+		if ( t==null ) {
+			t = add(probe);
+		}
+		return t;
+	}
+
+	protected <T extends Type> T add(T t) {
+		int index = firstTypeIndex+types.size();
+		if ( t instanceof PointerType ) ((PointerType)t).typeIndex = index;
+		else if ( t instanceof ArrayType ) ((ArrayType)t).typeIndex = index;
+		else ((FunctionType)t).typeIndex = index;
+		types.add(t);
+		canonical.put(t, t);
+		return t;
+	}
+
+	protected boolean isCanonical(Type t) {
+		return getType(t.getTypeIndex())==t;
+	}
+
+	/** Array, pointer and function types are compared by structure,
+	 *  everything else by identity.
+	 */
+	public static boolean isStructural(Type t) {
+		return t instanceof ArrayType || t instanceof PointerType || t instanceof FunctionType;
+	}
+
+	public static boolean sameType(Type a, Type b) {
+		return a==b || isStructural(a) && a.equals(b);
+	}
+
+	public static int hashType(Type t) {
+		if ( t==null ) return 0;
+		return isStructural(t) ? t.hashCode() : System.identityHashCode(t);
+	}
+}
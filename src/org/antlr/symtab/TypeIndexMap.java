@@ -0,0 +1,150 @@
+package org.antlr.symtab;
+
+/** Maps type indexes, {@link Type#getTypeIndex()}, back to types for code
+ *  that stores indexes, such as an interpreter decoding its instructions.
+ *  Primitive and aggregate types defined under the roots, nested ones
+ *  included, and the types a {@link TypeFactory} has made are kept in an
+ *  {@link IntMap}, so a lookup neither boxes the index, allocates nor
+ *  locks. Types inside an {@link ArchiveScope} are left out rather than
+ *  loading the whole archive; see {@link TypeRegistry}.
+ *
+ *  Types without an index, -1, aren't mapped. Given a {@link TypeRegistry},
+ *  as the map from {@link SymbolTable#getTypeIndexMap()} is, the map has it
+ *  number the types before each build.
+ *
+ *  Types should have distinct indexes, or at least indexes distinct from
+ *  the factory's; see {@link TypeFactory#setFirstTypeIndex} and
+ *  {@link SymbolTable#FIRST_FACTORY_TYPE_INDEX}. If several share one,
+ *  defined types win over the factory's and otherwise the first found
+ *  wins.
+ *
+ *  Listening to the table, the map drops its snapshot when types or scopes
+ *  holding them change, and rebuilds it on the next lookup; so does a
+ *  {@link TypeRegistry} given to {@link #setTypeRegistry} that reassigns
+ *  indexes. Call {@link #invalidate()} after changing type indexes
+ *  yourself. Factory types made since the last build are found through
+ *  the factory.
+ */
+public class TypeIndexMap implements ScopeListener {
+	protected final Scope[] roots;
+	protected final TypeFactory factory;
+	protected volatile IntMap<Type> types; // immutable once published; null if stale
+
+	protected volatile TypeRegistry registry;
+	protected volatile TypeRegistry.Relations indexedRelations; // registry's numbering when we were built
+
+	/** Map the types under roots and those made by factory, which may be
+	 *  null. Add the map as a listener too, or get one from
+	 *  {@link SymbolTable#getTypeIndexMap()}.
+	 */
+	public TypeIndexMap(TypeFactory factory, Scope... roots) {
+		this.factory = factory;
+		this.roots = roots;
+	}
+
+	/** Get the type with this index or null */
+	public Type get(int typeIndex) {
+		IntMap<Type> m = types;
+		TypeRegistry reg = registry;
+		if ( m==null || reg!=null && reg.relations!=indexedRelations ) {
+			m = build();
+		}
+		Type t = m.get(typeIndex);
+		if ( t!=null && t.getTypeIndex()!=typeIndex ) { // renumbered behind our back
+			types = null;
+			t = build().get(typeIndex);
+		}
+		if ( t==null && factory!=null ) {
+			t = factory.getType(typeIndex);
+		}
+		return t;
+	}
+
+	/** Watch registry, which assigns type indexes when it builds its tables */
+	public void setTypeRegistry(TypeRegistry registry) {
+		this.registry = registry;
+	}
+
+	/** Rebuild on the next lookup */
+	public void invalidate() {
+		types = null;
+	}
+
+	/** Number of types mapped as of the last build */
+	public int size() {
+		IntMap<Type> m = types;
+		return (m!=null ? m : build()).size();
+	}
+
+	protected synchronized IntMap<Type> build() {
+		IntMap<Type> m = types;
+		TypeRegistry reg = registry;
+		TypeRegistry.Relations r = reg!=null ? reg.getRelations() : null; // numbers the types
+		if ( m!=null && r==indexedRelations ) return m; // another thread built it
+		IntMap<Type> map = new IntMap<>();
+		ScopeVisitor collect = new ScopeVisitor() {
+			@Override
+			public boolean enterScope(Scope scope) {
+				return !(scope instanceof ArchiveScope); // walking one loads it all
+			}
+
+			@Override
+			public void visitSymbol(Symbol sym) {
+				if ( sym instanceof PrimitiveType || sym instanceof DataAggregateSymbol ) {
+					add(map, (Type)sym);
+				}
+			}
+		};
+		for (Scope root : roots) {
+			ScopeTraversal.walk(root, collect);
+		}
+		if ( factory!=null ) {
+			synchronized ( factory ) {
+				int first = factory.getFirstTypeIndex();
+				for (int i = 0; i<factory.size(); i++) {
+					add(map, factory.getType(first+i));
+				}
+			}
+		}
+		m = map;
+		indexedRelations = r;
+		types = m;
+		return m;
+	}
+
+	protected static void add(IntMap<Type> m, Type t) {
+		int i = t.getTypeIndex();
+		if ( i>=0 && !m.containsKey(i) ) {
+			m.put(i, t);
+		}
+	}
+
+	@Override
+	public void symbolDefined(Scope scope, Symbol sym) {
+		if ( sym instanceof Type || sym instanceof Scope && !((Scope)sym).getSymbols().isEmpty() ) {
+			types = null;
+		}
+	}
+
+	@Override
+	public void symbolRemoved(Scope scope, Symbol sym) {
+		if ( sym instanceof Type || sym instanceof Scope ) types = null;
+	}
+
+	@Override
+	public void symbolReplaced(Scope scope, Symbol old, Symbol sym) {
+		if ( old instanceof Type || old instanceof Scope || sym instanceof Type || sym instanceof Scope ) {
+			types = null;
+		}
+	}
+
+	@Override
+	public void scopeNested(Scope scope, Scope nested) {
+		if ( !nested.getSymbols().isEmpty() ) types = null;
+	}
+
+	@Override
+	public void scopeUnnested(Scope scope, Scope nested) {
+		types = null;
+	}
+}
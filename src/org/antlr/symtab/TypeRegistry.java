@@ -0,0 +1,311 @@
+package org.antlr.symtab;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Gives every primitive and aggregate type defined in a symbol table a
+ *  dense type index and precomputes how types relate, so a type checker
+ *  answers {@link #isSubtype}, {@link #isAssignable} and
+ *  {@link #getResultType} with a couple of array reads.
+ *
+ *  Primitive types get indexes 0..n-1 in definition order, followed by
+ *  structs and classes, nested ones included. Subtyping follows class
+ *  hierarchies and is answered from the classes' displays; see
+ *  {@link ClassSymbol#isSubclassOf}. Assignability is subtyping plus the
+ *  primitive promotions you declare, such as int to float, closed
+ *  transitively and kept as a bit matrix over the primitives only. The
+ *  result type of a binary arithmetic operation on two primitives is the
+ *  one the other promotes to unless you declare otherwise. Aliases stand
+ *  for their target types. Array, pointer and function types are outside
+ *  the matrix; they are only assignable to the same type. To keep one
+ *  index space with a {@link TypeFactory}, number its types from an index
+ *  limit given to the registry, as {@link SymbolTable} does.
+ *
+ *  Types inside an {@link ArchiveScope} are not registered, since walking
+ *  the archive would load all of it. They get no index, and subtyping
+ *  among archived classes still works through their displays.
+ *
+ *  Listening to the table, the registry drops its tables when types,
+ *  scopes holding types or superclasses change, and rebuilds them,
+ *  reassigning type indexes, on the next query. That includes
+ *  replaceUnit() swapping out a superclass, which relinks its subclasses.
+ *  {@link SymbolTable#freeze()} builds them for good with
+ *  {@link #freeze()}, so threads querying a frozen table only read; such
+ *  changes to a frozen registry's roots are rejected with an
+ *  IllegalStateException rather than quietly leaving stale tables.
+ */
+public class TypeRegistry implements ScopeListener {
+	/** One consistent set of indexes and relations */
+	protected static class Relations {
+		public final Type[] types; // by type index
+		public final int numPrimitives;
+		public final int words; // longs per matrix row
+		public final long[] assignable; // primitive row a, bit b set if a is assignable to b
+		public final Type[] resultTypes; // numPrimitives x numPrimitives
+
+		public Relations(Type[] types, int numPrimitives, long[] assignable, Type[] resultTypes) {
+			this.types = types;
+			this.numPrimitives = numPrimitives;
+			this.words = (numPrimitives+63)>>>6;
+			this.assignable = assignable;
+			this.resultTypes = resultTypes;
+		}
+
+		/** Index of t, or -1 if t has none or it is stale */
+		public int indexOf(Type t) {
+			int i = t.getTypeIndex();
+			return i>=0 && i<types.length && types[i]==t ? i : -1;
+		}
+	}
+
+	protected final Scope[] roots;
+	protected final int indexLimit; // indexes from here on belong to others
+	protected final List<Type[]> promotions = new ArrayList<>(); // from, to
+	protected final List<Type[]> declaredResults = new ArrayList<>(); // a, b, result
+	protected volatile Relations relations; // null if stale
+	protected boolean frozen; // see freeze()
+
+	/** Register the types defined under roots. Add the registry as a
+	 *  listener too, or get one from {@link SymbolTable#getTypeRegistry()}.
+	 */
+	public TypeRegistry(Scope... roots) {
+		this(Integer.MAX_VALUE, roots);
+	}
+
+	/** Register the types defined under roots, failing to build if there
+	 *  are more than indexLimit so indexes from indexLimit up stay free.
+	 */
+	public TypeRegistry(int indexLimit, Scope... roots) {
+		this.indexLimit = indexLimit;
+		this.roots = roots;
+	}
+
+	/** Values of type from can be assigned to to, and widen to to in
+	 *  arithmetic.
+	 */
+	public synchronized void declarePromotion(PrimitiveType from, PrimitiveType to) {
+		checkNotFrozen();
+		promotions.add(new Type[] {from, to});
+		relations = null;
+	}
+
+	/** a op b, and b op a, yield result in arithmetic */
+	public synchronized void declareResultType(PrimitiveType a, PrimitiveType b, PrimitiveType result) {
+		checkNotFrozen();
+		declaredResults.add(new Type[] {a, b, result});
+		relations = null;
+	}
+
+	public boolean isSubtype(Type a, Type b) {
+		a = unalias(a);
+		b = unalias(b);
+		if ( a==b ) return a!=null;
+		if ( a instanceof ClassSymbol && b instanceof ClassSymbol ) {
+			return ((ClassSymbol)a).isSubclassOf((ClassSymbol)b);
+		}
+		return TypeFactory.sameType(a, b);
+	}
+
+	/** Can a value of type from be assigned to a variable of type to? */
+	public boolean isAssignable(Type from, Type to) {
+		from = unalias(from);
+		to = unalias(to);
+		if ( from==to ) return from!=null;
+		if ( from instanceof PrimitiveType && to instanceof PrimitiveType ) {
+			Relations r = getRelations();
+			int i = indexIn(r.types, r.numPrimitives, from), j = indexIn(r.types, r.numPrimitives, to);
+			if ( i>=0 && j>=0 ) return isSet(r.assignable, r.words, i, j);
+		}
+		return isSubtype(from, to);
+	}
+
+	/** Type of a op b for arithmetic op, or null if a and b don't mix or
+	 *  aren't primitive.
+	 */
+	public Type getResultType(Type a, Type b) {
+		a = unalias(a);
+		b = unalias(b);
+		if ( a==null || b==null ) return null;
+		Relations r = getRelations();
+		int i = r.indexOf(a), j = r.indexOf(b);
+		if ( i<0 || j<0 || i>=r.numPrimitives || j>=r.numPrimitives ) return null;
+		return r.resultTypes[i*r.numPrimitives+j];
+	}
+
+	/** Get the type with this index or null */
+	public Type getType(int typeIndex) {
+		Relations r = getRelations();
+		return typeIndex>=0 && typeIndex<r.types.length ? r.types[typeIndex] : null;
+	}
+
+	public int getNumberOfTypes() { return getRelations().types.length; }
+
+	public int getNumberOfPrimitiveTypes() { return getRelations().numPrimitives; }
+
+	/** Follow aliases to a non-alias type; null if the chain is cyclic or
+	 *  ends in null.
+	 */
+	public static Type unalias(Type t) {
+		for (int n = 0; t instanceof TypeAlias; n++) {
+			if ( n>64 ) return null;
+			t = ((TypeAlias)t).getTargetType();
+		}
+		return t;
+	}
+
+	/** Build the tables, if stale, and keep them; declaring promotions or
+	 *  result types afterwards is an error. Call once the roots are done
+	 *  changing, before other threads query the registry.
+	 */
+	public synchronized void freeze() {
+		build();
+		frozen = true;
+	}
+
+	public synchronized boolean isFrozen() { return frozen; }
+
+	protected void checkNotFrozen() {
+		if ( frozen ) {
+			throw new IllegalStateException("type registry is frozen");
+		}
+	}
+
+	/** The roots changed; rebuild on the next query, unless frozen */
+	protected void invalidate() {
+		checkNotFrozen();
+		relations = null;
+	}
+
+	protected Relations getRelations() {
+		Relations r = relations;
+		if ( r==null ) {
+			r = build();
+		}
+		return r;
+	}
+
+	/** Assign type indexes and compute relations */
+	protected synchronized Relations build() {
+		if ( relations!=null ) return relations; // another thread built it
+		List<PrimitiveType> prims = new ArrayList<>();
+		List<DataAggregateSymbol> aggrs = new ArrayList<>();
+		Map<Type, Boolean> seen = new IdentityHashMap<>();
+		ScopeVisitor collect = new ScopeVisitor() {
+			@Override
+			public boolean enterScope(Scope scope) {
+				return !(scope instanceof ArchiveScope); // walking one loads it all
+			}
+
+			@Override
+			public void visitSymbol(Symbol sym) {
+				if ( sym instanceof PrimitiveType && seen.put((Type)sym, true)==null ) {
+					prims.add((PrimitiveType)sym);
+				}
+				else if ( sym instanceof DataAggregateSymbol && seen.put((Type)sym, true)==null ) {
+					aggrs.add((DataAggregateSymbol)sym);
+				}
+			}
+		};
+		for (Scope root : roots) {
+			ScopeTraversal.walk(root, collect);
+		}
+
+		int p = prims.size();
+		if ( p+aggrs.size()>indexLimit ) {
+			throw new IllegalStateException((p+aggrs.size())+" types don't fit below type index "+indexLimit);
+		}
+		Type[] types = new Type[p+aggrs.size()];
+		for (int i = 0; i<p; i++) { // a rebuild of an unchanged tree writes no indexes
+			if ( prims.get(i).getTypeIndex()!=i ) prims.get(i).setTypeIndex(i);
+			types[i] = prims.get(i);
+		}
+		for (int i = 0; i<aggrs.size(); i++) {
+			if ( aggrs.get(i).getTypeIndex()!=p+i ) aggrs.get(i).setTypeIndex(p+i);
+			types[p+i] = aggrs.get(i);
+		}
+		int words = (p+63)>>>6;
+
+		// promotions among primitives, closed transitively
+		long[] assignable = new long[p*words];
+		for (int i = 0; i<p; i++) {
+			set(assignable, words, i, i);
+		}
+		for (Type[] pr : promotions) {
+			int i = indexIn(types, p, pr[0]), j = indexIn(types, p, pr[1]);
+			if ( i>=0 && j>=0 ) set(assignable, words, i, j);
+		}
+		for (int k = 0; k<p; k++) { // Warshall; p is small
+			for (int i = 0; i<p; i++) {
+				if ( isSet(assignable, words, i, k) ) {
+					for (int w = 0; w<words; w++) {
+						assignable[i*words+w] |= assignable[k*words+w];
+					}
+				}
+			}
+		}
+
+		Type[] results = new Type[p*p];
+		for (int i = 0; i<p; i++) {
+			for (int j = 0; j<p; j++) {
+				if ( i==j || isSet(assignable, words, j, i) ) results[i*p+j] = types[i];
+				else if ( isSet(assignable, words, i, j) ) results[i*p+j] = types[j];
+			}
+		}
+		for (Type[] d : declaredResults) {
+			int i = indexIn(types, p, d[0]), j = indexIn(types, p, d[1]);
+			if ( i>=0 && j>=0 ) {
+				results[i*p+j] = d[2];
+				results[j*p+i] = d[2];
+			}
+		}
+
+		Relations r = new Relations(types, p, assignable, results);
+		relations = r;
+		return r;
+	}
+
+	protected static int indexIn(Type[] types, int n, Type t) {
+		int i = t.getTypeIndex();
+		return i>=0 && i<n && types[i]==t ? i : -1;
+	}
+
+	protected static void set(long[] m, int words, int a, int b) {
+		m[a*words+(b>>>6)] |= 1L<<b;
+	}
+
+	protected static boolean isSet(long[] m, int words, int a, int b) {
+		return (m[a*words+(b>>>6)] & (1L<<b))!=0;
+	}
+
+	@Override
+	public void symbolDefined(Scope scope, Symbol sym) {
+		if ( sym instanceof Type ) invalidate();
+	}
+
+	@Override
+	public void symbolRemoved(Scope scope, Symbol sym) {
+		if ( sym instanceof Type || sym instanceof Scope ) invalidate();
+	}
+
+	@Override
+	public void symbolReplaced(Scope scope, Symbol old, Symbol sym) {
+		if ( old instanceof Type || old instanceof Scope || sym instanceof Type ) invalidate();
+	}
+
+	@Override
+	public void scopeNested(Scope scope, Scope nested) {
+		if ( !nested.getSymbols().isEmpty() ) invalidate();
+	}
+
+	@Override
+	public void scopeUnnested(Scope scope, Scope nested) {
+		invalidate();
+	}
+
+	@Override
+	public void superClassChanged(ClassSymbol c, String oldSuperClassName) {
+		invalidate();
+	}
+}
@@ -98,6 +98,9 @@ public class Utils {
 	 *  String includes arg scope in string.
 	 */
 	public static String toScopeStackString(Scope scope, String separator) {
+		if ( scope instanceof BaseScope ) {
+			return ((BaseScope)scope).toScopeStackString(separator); // cached
+		}
 		List<Scope> scopes = scope.getEnclosingPathToRoot();
 		return joinScopeNames(scopes, separator);
 	}
@@ -107,6 +110,9 @@ public class Utils {
 	 *  String includes arg scope in string.
 	 */
 	public static String toQualifierString(Scope scope, String separator) {
+		if ( scope instanceof BaseScope ) {
+			return ((BaseScope)scope).toQualifierString(separator); // cached
+		}
 		List<Scope> scopes = scope.getEnclosingPathToRoot();
 		Collections.reverse(scopes);
 		return joinScopeNames(scopes, separator);
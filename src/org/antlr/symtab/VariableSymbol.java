@@ -1,6 +1,11 @@
 package org.antlr.symtab;
 
 public class VariableSymbol extends BaseSymbol implements TypedSymbol {
+	/** Frame slot within the enclosing function, or -1 if not assigned or
+	 *  not a local. See {@link FunctionSymbol#assignLocalSlots()}.
+	 */
+	protected int localSlot = -1;
+
 	public VariableSymbol(String name) {
 		super(name);
 	}
@@ -9,4 +14,13 @@ public class VariableSymbol extends BaseSymbol implements TypedSymbol {
 	public void setType(Type type) {
 		super.setType(type);
 	}
+
+	public int getLocalSlot() { return localSlot; }
+
+	/** Return the function whose frame holds this variable, if defined in a
+	 *  function or in a local scope nested within one, else null.
+	 */
+	public FunctionSymbol getEnclosingFunction() {
+		return FunctionSymbol.getFrameOwner(scope);
+	}
 }
@@ -0,0 +1,29 @@
+package org.antlr.symtab;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestAppendOnlyArray {
+	@Test
+	public void getSpansChunks() {
+		AppendOnlyArray<Integer> a = new AppendOnlyArray<>();
+		for (int i = 0; i<1000; i++) {
+			assertEquals(i, a.add(i));
+		}
+		for (int i = 0; i<1000; i++) {
+			assertEquals(Integer.valueOf(i), a.get(i));
+		}
+		assertNull(a.get(1000));
+		assertNull(a.get(-1));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void getGivesUpOnClaimNeverStored() {
+		AppendOnlyArray<String> a = new AppendOnlyArray<>();
+		a.add("a");
+		a.claim(); // as if its writer died before set()
+		a.get(1);
+	}
+}
@@ -0,0 +1,52 @@
+package org.antlr.symtab;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestCompletionIndex {
+	protected static ClassSymbol classWithFields(String name, int n) {
+		ClassSymbol c = new ClassSymbol(name);
+		for (int i = 0; i<n; i++) {
+			c.define(new FieldSymbol("field"+i));
+		}
+		return c;
+	}
+
+	@Test
+	public void replacingUnitDropsIndexesWithin() {
+		SymbolTable symtab = new SymbolTable();
+		ClassSymbol c = classWithFields("C", CompletionIndex.MIN_CACHED);
+		ClassSymbol inner = classWithFields("Inner", CompletionIndex.MIN_CACHED);
+		c.define(inner);
+		symtab.GLOBALS.replaceUnit("c.java", Collections.singletonList(c));
+		CompletionIndex completion = symtab.getCompletionIndex();
+		assertEquals(CompletionIndex.MIN_CACHED, completion.complete(inner, "field").size());
+		assertTrue(completion.indexes.containsKey(inner));
+		assertTrue(completion.indexes.containsKey(c));
+
+		symtab.GLOBALS.replaceUnit("c.java", Collections.emptyList());
+		assertFalse(completion.indexes.containsKey(inner));
+		assertFalse(completion.indexes.containsKey(c));
+	}
+
+	@Test
+	public void smallScopesArentKept() {
+		SymbolTable symtab = new SymbolTable();
+		CompletionIndex completion = symtab.getCompletionIndex();
+		List<Symbol> found = new ArrayList<>();
+		for (int i = 0; i<100; i++) {
+			LocalScope caret = new LocalScope(symtab.GLOBALS); // per query, never nested
+			caret.define(new VariableSymbol("x"+i));
+			found.addAll(completion.complete(caret, "x"));
+		}
+		assertEquals(100, found.size());
+		assertTrue(completion.indexes.isEmpty());
+	}
+}
@@ -0,0 +1,41 @@
+package org.antlr.symtab;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestConcurrentGlobalScope {
+	@Test
+	public void scopedSymbolsFollowSymbolOrder() throws InterruptedException {
+		ConcurrentGlobalScope globals = new ConcurrentGlobalScope(null);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t<8; t++) {
+			int unit = t;
+			threads.add(new Thread(() -> {
+				for (int i = 0; i<500; i++) {
+					String name = unit+"_"+i;
+					globals.define(i%2==0 ? new ClassSymbol("C"+name) : new VariableSymbol("v"+name));
+				}
+			}));
+		}
+		for (Thread t : threads) t.start();
+		for (Thread t : threads) t.join();
+		assertEquals(scopedAmong(globals.getSymbols()), globals.getNestedScopedSymbols());
+
+		globals.renumber(Comparator.comparing(Symbol::getName));
+		assertEquals(scopedAmong(globals.getSymbols()), globals.getNestedScopedSymbols());
+		assertEquals(2000, globals.getNestedScopedSymbols().size());
+	}
+
+	protected static List<Scope> scopedAmong(List<? extends Symbol> syms) {
+		List<Scope> scopes = new ArrayList<>();
+		for (Symbol s : syms) {
+			if ( s instanceof Scope ) scopes.add((Scope)s);
+		}
+		return scopes;
+	}
+}
@@ -0,0 +1,52 @@
+package org.antlr.symtab;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestDependencyRecorder {
+	@Test
+	public void forgetEmptiesIndexes() {
+		SymbolTable symtab = new SymbolTable();
+		ClassSymbol c = new ClassSymbol("C");
+		c.setSuperClass("Missing");
+		symtab.GLOBALS.define(c);
+		symtab.GLOBALS.define(new VariableSymbol("x"));
+		DependencyRecorder r = new DependencyRecorder();
+		symtab.addListener(r);
+		r.resolve("m1", c, "x");
+		r.resolve("m1", c, "y");
+		r.resolve("m2", symtab.GLOBALS, "x");
+		r.resolveAll("m2", c, new String[] {"x", "z"}, new Symbol[2]);
+		assertEquals(2, r.getNumberOfConsumers());
+		assertEquals(Collections.singleton("Missing"), r.byMissingSuperClass.keySet());
+
+		r.forget("m1");
+		r.forget("m2");
+		assertIndexesEmpty(r);
+	}
+
+	@Test
+	public void invalidationEmptiesIndexes() {
+		SymbolTable symtab = new SymbolTable();
+		LocalScope local = new LocalScope(symtab.GLOBALS);
+		symtab.GLOBALS.nest(local);
+		DependencyRecorder r = new DependencyRecorder();
+		symtab.addListener(r);
+		r.resolve("body", local, "x");
+		symtab.GLOBALS.define(new VariableSymbol("x"));
+		assertEquals(Collections.singleton("body"), r.takeInvalidated());
+		assertIndexesEmpty(r);
+	}
+
+	protected static void assertIndexesEmpty(DependencyRecorder r) {
+		assertEquals(0, r.getNumberOfConsumers());
+		assertTrue(r.byName.isEmpty());
+		assertTrue(r.byScope.isEmpty());
+		assertTrue(r.byMissingSuperClass.isEmpty());
+		assertTrue(r.byConsumer.isEmpty());
+	}
+}
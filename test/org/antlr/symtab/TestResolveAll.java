@@ -0,0 +1,44 @@
+package org.antlr.symtab;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TestResolveAll {
+	@Test
+	public void resolveAllWalksScopesItself() {
+		GlobalScope globals = new GlobalScope(null);
+		VariableSymbol g = new VariableSymbol("g");
+		globals.define(g);
+		LocalScope local = new LocalScope(globals);
+		VariableSymbol x = new VariableSymbol("x");
+		local.define(x);
+		Symbol[] out = new Symbol[3];
+		assertEquals(2, local.resolveAll(new String[] {"x", "g", "y"}, out));
+		assertSame(x, out[0]);
+		assertSame(g, out[1]);
+		assertNull(out[2]);
+	}
+
+	@Test
+	public void resolveAllDefersToCustomResolve() {
+		GlobalScope globals = new GlobalScope(null);
+		VariableSymbol g = new VariableSymbol("g");
+		globals.define(g);
+		LocalScope aliasing = new LocalScope(globals) { // "it" means g here
+			@Override
+			public Symbol resolve(String name) {
+				return super.resolve(name.equals("it") ? "g" : name);
+			}
+
+			@Override
+			protected boolean resolvesLocally() { return false; }
+		};
+		LocalScope local = new LocalScope(aliasing);
+		Symbol[] out = new Symbol[1];
+		assertEquals(1, local.resolveAll(new String[] {"it"}, out));
+		assertSame(g, out[0]);
+	}
+}
@@ -0,0 +1,84 @@
+package org.antlr.symtab;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class TestScopeReplacement {
+	@Test
+	public void replaceUnitKeepsSymbolAddedBack() {
+		SymbolTable symtab = new SymbolTable();
+		symtab.definePredefinedSymbol(new PrimitiveType("int"));
+		ClassSymbol c = new ClassSymbol("C");
+		VariableSymbol x = new VariableSymbol("x");
+		symtab.GLOBALS.replaceUnit("a.java", Arrays.asList(c, x));
+		symtab.GLOBALS.replaceUnit("a.java", Arrays.asList(c, x));
+		assertSame(symtab.GLOBALS, c.getScope());
+		assertSame(symtab.GLOBALS, x.getScope());
+		assertSame(c, symtab.GLOBALS.resolve("C"));
+		assertNotNull(c.resolve("int"));
+	}
+
+	@Test
+	public void replaceUnitDetachesSymbolLeftOut() {
+		SymbolTable symtab = new SymbolTable();
+		VariableSymbol x = new VariableSymbol("x");
+		VariableSymbol y = new VariableSymbol("y");
+		symtab.GLOBALS.replaceUnit("a.java", Arrays.asList(x, y));
+		symtab.GLOBALS.replaceUnit("a.java", Collections.singletonList(x));
+		assertSame(symtab.GLOBALS, x.getScope());
+		assertNull(y.getScope());
+	}
+
+	@Test
+	public void replaceWithSameSymbolKeepsIt() {
+		SymbolTable symtab = new SymbolTable();
+		symtab.definePredefinedSymbol(new PrimitiveType("int"));
+		ClassSymbol c = new ClassSymbol("C");
+		symtab.GLOBALS.define(c);
+		assertSame(c, symtab.GLOBALS.replace(c));
+		assertSame(symtab.GLOBALS, c.getScope());
+		assertNotNull(c.resolve("int"));
+	}
+
+	@Test
+	public void replaceSameLocalKeepsSlot() {
+		FunctionSymbol f = new FunctionSymbol("f");
+		VariableSymbol p = new ParameterSymbol("p");
+		VariableSymbol q = new ParameterSymbol("q");
+		f.define(p);
+		f.define(q);
+		assertEquals(2, f.assignLocalSlots());
+		f.replace(q);
+		assertEquals(1, q.getLocalSlot());
+		assertEquals(2, f.getFrameSize());
+	}
+
+	@Test
+	public void nearerClassShadowsCachedSuperClass() {
+		SymbolTable symtab = new SymbolTable();
+		ClassSymbol outerBase = new ClassSymbol("Base");
+		symtab.definePredefinedSymbol(outerBase);
+		ClassSymbol c = new ClassSymbol("C");
+		c.setSuperClass("Base");
+		symtab.GLOBALS.define(c);
+		assertSame(outerBase, c.getSuperClassScope());
+
+		ClassSymbol base = new ClassSymbol("Base");
+		symtab.GLOBALS.define(base);
+		assertSame(base, c.getSuperClassScope());
+		assertEquals(false, c.isSubclassOf(outerBase));
+
+		symtab.GLOBALS.undefine("Base");
+		assertSame(outerBase, c.getSuperClassScope());
+		ClassSymbol base2 = new ClassSymbol("Base");
+		symtab.GLOBALS.replaceUnit("base.java", Collections.singletonList(base2));
+		assertSame(base2, c.getSuperClassScope());
+	}
+}
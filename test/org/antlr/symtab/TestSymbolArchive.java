@@ -0,0 +1,182 @@
+package org.antlr.symtab;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestSymbolArchive {
+	protected Path file;
+
+	@After
+	public void deleteArchive() throws IOException {
+		if ( file!=null ) Files.deleteIfExists(file);
+	}
+
+	/** A table whose predefined scope is an archive of int, int *p and
+	 *  classes A and B extends A; globals define class C extends B.
+	 */
+	protected SymbolTable tableOverArchive() throws IOException {
+		GlobalScope lib = new GlobalScope(null);
+		PrimitiveType i = new PrimitiveType("int");
+		lib.define(i);
+		VariableSymbol p = new VariableSymbol("p");
+		p.setType(new TypeFactory().pointerTo(i));
+		lib.define(p);
+		ClassSymbol a = new ClassSymbol("A");
+		ClassSymbol b = new ClassSymbol("B");
+		b.setSuperClass("A");
+		lib.define(a);
+		lib.define(b);
+		file = Files.createTempFile("symtab", ".syma");
+		SymbolArchiveWriter.write(lib, file);
+
+		SymbolTable symtab = new SymbolTable();
+		symtab.PREDEFINED = ArchiveScope.open(file, null, symtab.TYPES);
+		symtab.GLOBALS.setEnclosingScope(symtab.PREDEFINED);
+		ClassSymbol c = new ClassSymbol("C");
+		c.setSuperClass("B");
+		symtab.GLOBALS.define(c);
+		return symtab;
+	}
+
+	@Test
+	public void typeRegistryLeavesArchiveUnloaded() throws IOException {
+		SymbolTable symtab = tableOverArchive();
+		ArchiveScope archive = (ArchiveScope)symtab.PREDEFINED;
+		TypeRegistry registry = symtab.getTypeRegistry();
+		assertEquals(1, registry.getNumberOfTypes()); // just C
+		assertEquals(0, archive.getNumberOfLoadedSymbols());
+		Type c = (Type)symtab.GLOBALS.getSymbol("C");
+		assertTrue(registry.isSubtype(c, (Type)archive.getSymbol("A"))); // loads what it needs
+		assertEquals(2, archive.getNumberOfLoadedSymbols());
+	}
+
+	@Test
+	public void typeIndexMapLeavesArchiveUnloaded() throws IOException {
+		SymbolTable symtab = tableOverArchive();
+		ArchiveScope archive = (ArchiveScope)symtab.PREDEFINED;
+		Type c = (Type)symtab.GLOBALS.getSymbol("C");
+		symtab.getTypeRegistry().getNumberOfTypes(); // numbers C
+		assertSame(c, symtab.getType(c.getTypeIndex()));
+		assertEquals(0, archive.getNumberOfLoadedSymbols());
+	}
+
+	@Test
+	public void archiveTypesShareTableIndexSpace() throws IOException {
+		SymbolTable symtab = tableOverArchive();
+		Type p = ((VariableSymbol)symtab.PREDEFINED.getSymbol("p")).getType();
+		PrimitiveType i = (PrimitiveType)symtab.PREDEFINED.getSymbol("int");
+		assertEquals(-1, i.getTypeIndex());
+		assertSame(symtab.TYPES.pointerTo(i), p);
+		assertEquals(SymbolTable.FIRST_FACTORY_TYPE_INDEX, p.getTypeIndex());
+		assertSame(p, symtab.getType(p.getTypeIndex()));
+	}
+
+	/** An archive of float, class A { float *m(int[] p) { { float y; } } },
+	 *  class B extends A { int n; } and 200 variables v0..v199.
+	 */
+	protected ArchiveScope openLibrary(TypeFactory types) throws IOException {
+		GlobalScope lib = new GlobalScope(null);
+		TypeFactory libTypes = new TypeFactory();
+		PrimitiveType f = new PrimitiveType("float");
+		PrimitiveType i = new PrimitiveType("int");
+		lib.define(f);
+		lib.define(i);
+		ClassSymbol a = new ClassSymbol("A");
+		MethodSymbol m = new MethodSymbol("m");
+		m.setType(libTypes.pointerTo(f));
+		ParameterSymbol p = new ParameterSymbol("p");
+		p.setType(libTypes.arrayOf(i));
+		m.define(p);
+		LocalScope block = new LocalScope(m);
+		VariableSymbol y = new VariableSymbol("y");
+		y.setType(f);
+		block.define(y);
+		m.nest(block);
+		a.define(m);
+		lib.define(a);
+		ClassSymbol b = new ClassSymbol("B");
+		b.setSuperClass("A");
+		FieldSymbol n = new FieldSymbol("n");
+		n.setType(i);
+		b.define(n);
+		lib.define(b);
+		for (int k = 0; k<200; k++) {
+			VariableSymbol v = new VariableSymbol("v"+k);
+			v.setType(k%2==0 ? i : libTypes.pointerTo(f));
+			lib.define(v);
+		}
+		file = Files.createTempFile("symtab", ".syma");
+		SymbolArchiveWriter.write(lib, file);
+		return ArchiveScope.open(file, null, types);
+	}
+
+	@Test
+	public void archiveLoadsOnlyWhatIsLookedUp() throws IOException {
+		ArchiveScope archive = openLibrary(new TypeFactory());
+		assertEquals(204, archive.getNumberOfSymbols());
+		assertEquals(0, archive.getNumberOfLoadedSymbols());
+		assertNull(archive.resolve("nothing"));
+		assertEquals(0, archive.getNumberOfLoadedSymbols());
+		VariableSymbol v = (VariableSymbol)archive.resolve("v150");
+		assertEquals(2, archive.getNumberOfLoadedSymbols()); // and its type, int
+		assertSame(archive.getSymbol("int"), v.getType());
+		assertSame(v, archive.getSymbol("v150"));
+		assertEquals(2, archive.getNumberOfLoadedSymbols());
+	}
+
+	@Test
+	public void archiveRoundTripKeepsClassesAndNestedScopes() throws IOException {
+		TypeFactory types = new TypeFactory();
+		ArchiveScope archive = openLibrary(types);
+		ClassSymbol b = (ClassSymbol)archive.resolve("B");
+		ClassSymbol a = b.getSuperClassScope(); // loads A by name
+		assertSame(archive.getSymbol("A"), a);
+		assertTrue(b.isSubclassOf(a));
+		assertSame(a.getSymbol("m"), b.resolveMember("m"));
+
+		MethodSymbol m = (MethodSymbol)a.getSymbol("m");
+		assertSame(m, m.getSymbol("p").getScope());
+		List<Scope> nested = m.getNestedScopes();
+		assertEquals(1, nested.size());
+		assertSame(m, nested.get(0).getEnclosingScope());
+		PrimitiveType f = (PrimitiveType)archive.getSymbol("float");
+		assertSame(f, ((VariableSymbol)nested.get(0).getSymbol("y")).getType());
+	}
+
+	@Test
+	public void archiveInternsFactoryTypesInGivenFactory() throws IOException {
+		TypeFactory types = new TypeFactory();
+		ArchiveScope archive = openLibrary(types);
+		PrimitiveType f = (PrimitiveType)archive.getSymbol("float");
+		PrimitiveType i = (PrimitiveType)archive.getSymbol("int");
+		MethodSymbol m = (MethodSymbol)((ClassSymbol)archive.getSymbol("A")).getSymbol("m");
+		assertSame(types.pointerTo(f), m.getType());
+		assertSame(types.arrayOf(i), ((ParameterSymbol)m.getSymbol("p")).getType());
+		assertSame(types.pointerTo(f), ((VariableSymbol)archive.getSymbol("v1")).getType());
+		assertEquals(2, types.size());
+	}
+
+	@Test
+	public void archiveKeepsDefinitionOrder() throws IOException {
+		ArchiveScope archive = openLibrary(new TypeFactory());
+		List<String> names = Arrays.asList("float", "int", "A", "B", "v0", "v1");
+		assertEquals(names, archive.getSymbols().stream()
+			.limit(names.size()).map(Symbol::getName).collect(Collectors.toList()));
+		assertEquals(204, archive.getNumberOfLoadedSymbols());
+		for (Symbol s : archive.getSymbols()) {
+			assertSame(archive, s.getScope());
+		}
+	}
+}
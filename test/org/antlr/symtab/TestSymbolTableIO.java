@@ -0,0 +1,144 @@
+package org.antlr.symtab;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestSymbolTableIO {
+	@Test
+	public void varIntBoundaries() throws IOException {
+		int[] values = {0, 1, 127, 128, 16383, 16384, 2097151, 2097152,
+						268435455, 268435456, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+		int[] sizes =  {1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 5, 5};
+		for (int i = 0; i<values.length; i++) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			SymbolTableWriter.writeVarInt(new DataOutputStream(bytes), values[i]);
+			assertEquals("size of "+values[i], sizes[i], bytes.size());
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+			assertEquals(values[i], SymbolTableReader.readVarInt(in));
+		}
+	}
+
+	/** int and float predefined; globals: class A { int x; int m(int p) {
+	 *  { float y; } } }, class B extends A { int m(int p) }, struct S
+	 *  { int *p; int a[10]; int (*f)(float); }.
+	 */
+	protected static SymbolTable sampleTable() {
+		SymbolTable symtab = new SymbolTable();
+		PrimitiveType i = new PrimitiveType("int");
+		PrimitiveType f = new PrimitiveType("float");
+		symtab.definePredefinedSymbol(i);
+		symtab.definePredefinedSymbol(f);
+
+		ClassSymbol a = new ClassSymbol("A");
+		FieldSymbol x = new FieldSymbol("x");
+		x.setType(i);
+		a.define(x);
+		MethodSymbol m = method("m", i, i);
+		a.define(m);
+		LocalScope block = new LocalScope(m);
+		VariableSymbol y = new VariableSymbol("y");
+		y.setType(f);
+		block.define(y);
+		m.nest(block);
+		symtab.defineGlobalSymbol(a);
+
+		ClassSymbol b = new ClassSymbol("B");
+		b.setSuperClass("A");
+		b.define(method("m", i, i));
+		symtab.defineGlobalSymbol(b);
+
+		StructSymbol s = new StructSymbol("S");
+		FieldSymbol p = new FieldSymbol("p");
+		p.setType(symtab.TYPES.pointerTo(i));
+		s.define(p);
+		FieldSymbol arr = new FieldSymbol("a");
+		arr.setType(symtab.TYPES.arrayOf(i, 10));
+		s.define(arr);
+		FieldSymbol fp = new FieldSymbol("f");
+		fp.setType(symtab.TYPES.pointerTo(symtab.TYPES.functionType(i, Arrays.asList(f))));
+		s.define(fp);
+		symtab.defineGlobalSymbol(s);
+		symtab.getTypeRegistry().getNumberOfTypes(); // number the types
+		return symtab;
+	}
+
+	protected static MethodSymbol method(String name, Type ret, Type arg) {
+		MethodSymbol m = new MethodSymbol(name);
+		m.setType(ret);
+		ParameterSymbol p = new ParameterSymbol("p");
+		p.setType(arg);
+		m.define(p);
+		return m;
+	}
+
+	protected static SymbolTable roundTrip(SymbolTable symtab) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		SymbolTableWriter.write(symtab, bytes);
+		return SymbolTableReader.read(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	@Test
+	public void roundTripKeepsScopesAndOrder() throws IOException {
+		SymbolTable orig = sampleTable();
+		SymbolTable read = roundTrip(orig);
+		assertEquals(orig.PREDEFINED.getSymbolNames(), read.PREDEFINED.getSymbolNames());
+		assertEquals(orig.GLOBALS.getSymbolNames(), read.GLOBALS.getSymbolNames());
+		for (Symbol s : orig.GLOBALS.getSymbols()) {
+			Symbol r = read.GLOBALS.getSymbol(s.getName());
+			assertEquals(s.getInsertionOrderNumber(), r.getInsertionOrderNumber());
+			assertEquals(((Scope)s).getSymbolNames(), ((Scope)r).getSymbolNames());
+		}
+
+		Scope m = (Scope)((ClassSymbol)read.GLOBALS.getSymbol("A")).getSymbol("m");
+		List<Scope> nested = m.getNestedScopes();
+		assertEquals(1, nested.size());
+		Symbol y = nested.get(0).getSymbol("y");
+		assertNotNull(y);
+		assertSame(read.PREDEFINED.getSymbol("float"), ((TypedSymbol)y).getType());
+		assertSame(m, nested.get(0).getEnclosingScope());
+	}
+
+	@Test
+	public void roundTripKeepsClassesAndSlots() throws IOException {
+		SymbolTable orig = sampleTable();
+		SymbolTable read = roundTrip(orig);
+		ClassSymbol a = (ClassSymbol)read.GLOBALS.getSymbol("A");
+		ClassSymbol b = (ClassSymbol)read.GLOBALS.getSymbol("B");
+		assertNull(a.getSuperClassName());
+		assertEquals("A", b.getSuperClassName());
+		assertSame(a, b.getSuperClassScope());
+		assertTrue(b.isSubclassOf(a));
+		ClassSymbol origB = (ClassSymbol)orig.GLOBALS.getSymbol("B");
+		assertEquals(origB.getNumberOfMethods(), b.getNumberOfMethods());
+		assertEquals(((MethodSymbol)origB.getSymbol("m")).getSlotNumber(),
+					 ((MethodSymbol)b.getSymbol("m")).getSlotNumber());
+		assertEquals(orig.GLOBALS.getSymbol("S").getClass(), read.GLOBALS.getSymbol("S").getClass());
+		assertEquals(((Type)orig.GLOBALS.getSymbol("S")).getTypeIndex(),
+					 ((Type)read.GLOBALS.getSymbol("S")).getTypeIndex());
+	}
+
+	@Test
+	public void roundTripInternsFactoryTypes() throws IOException {
+		SymbolTable read = roundTrip(sampleTable());
+		Type i = (Type)read.PREDEFINED.getSymbol("int");
+		Type f = (Type)read.PREDEFINED.getSymbol("float");
+		StructSymbol s = (StructSymbol)read.GLOBALS.getSymbol("S");
+		assertSame(read.TYPES.pointerTo(i), ((TypedSymbol)s.getSymbol("p")).getType());
+		assertSame(read.TYPES.arrayOf(i, 10), ((TypedSymbol)s.getSymbol("a")).getType());
+		assertSame(read.TYPES.pointerTo(read.TYPES.functionType(i, Arrays.asList(f))),
+				   ((TypedSymbol)s.getSymbol("f")).getType());
+	}
+}
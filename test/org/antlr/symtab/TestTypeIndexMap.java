@@ -0,0 +1,45 @@
+package org.antlr.symtab;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TestTypeIndexMap {
+	@Test
+	public void unnumberedTypesArentMapped() {
+		SymbolTable symtab = new SymbolTable();
+		StructSymbol s = new StructSymbol("S");
+		symtab.GLOBALS.define(s);
+		assertEquals(-1, s.getTypeIndex());
+		TypeIndexMap map = new TypeIndexMap(symtab.TYPES, symtab.GLOBALS);
+		assertNull(map.get(0));
+		assertEquals(0, map.size());
+	}
+
+	@Test
+	public void tableMapNumbersTypes() {
+		SymbolTable symtab = new SymbolTable();
+		StructSymbol s = new StructSymbol("S");
+		StructSymbol t = new StructSymbol("T");
+		symtab.GLOBALS.define(s);
+		symtab.GLOBALS.define(t);
+		assertEquals(-1, s.getTypeIndex());
+		assertTrue(symtab.getTypeRegistry().getNumberOfTypes()>=2); // numbers them
+		assertSame(s, symtab.getType(s.getTypeIndex()));
+		assertSame(t, symtab.getType(t.getTypeIndex()));
+		assertTrue(s.getTypeIndex()!=t.getTypeIndex());
+	}
+
+	@Test
+	public void tableMapHasRegistryNumberTypes() {
+		SymbolTable symtab = new SymbolTable();
+		StructSymbol s = new StructSymbol("S");
+		symtab.GLOBALS.define(s);
+		symtab.getType(0);
+		assertTrue(s.getTypeIndex()>=0);
+		assertSame(s, symtab.getType(s.getTypeIndex()));
+	}
+}
@@ -0,0 +1,55 @@
+package org.antlr.symtab;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestTypeRegistry {
+	@Test
+	public void replacingSuperClassTellsListeners() {
+		SymbolTable symtab = new SymbolTable();
+		ClassSymbol a = new ClassSymbol("A");
+		ClassSymbol b = new ClassSymbol("B");
+		b.setSuperClass("A");
+		symtab.GLOBALS.replaceUnit("a.java", Collections.singletonList(a));
+		symtab.GLOBALS.define(b);
+		assertTrue(symtab.getTypeRegistry().isSubtype(b, a));
+
+		List<ClassSymbol> changed = new ArrayList<>();
+		symtab.addListener(new ScopeListener() {
+			@Override
+			public void superClassChanged(ClassSymbol c, String oldSuperClassName) {
+				changed.add(c);
+			}
+		});
+		ClassSymbol a2 = new ClassSymbol("A");
+		symtab.GLOBALS.replaceUnit("a.java", Collections.singletonList(a2));
+		assertEquals(Collections.singletonList(b), changed);
+		assertFalse(symtab.getTypeRegistry().isSubtype(b, a));
+		assertTrue(symtab.getTypeRegistry().isSubtype(b, a2));
+	}
+
+	@Test
+	public void frozenRegistryRejectsNewTypes() {
+		GlobalScope globals = new GlobalScope(null);
+		globals.define(new PrimitiveType("int"));
+		TypeRegistry reg = new TypeRegistry(globals);
+		globals.addScopeListener(reg);
+		reg.freeze();
+		try {
+			globals.define(new PrimitiveType("float"));
+			fail("expected IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+			// the registry can't renumber once frozen
+		}
+		assertEquals(1, reg.getNumberOfTypes());
+	}
+}